@@ -0,0 +1,113 @@
+#!/usr/bin/env bash
+#
+# Compares startup of the JVM, AOT, AOT + AppCDS and native builds: time from launch
+# to the first successful /api/search, time to readiness, and resident memory once
+# ready. Needs Elasticsearch on localhost:9200 (docker-compose up -d) and the
+# artifacts of:
+#
+#   mvn -Pstartup package -DskipTests          # jvm, aot and aot-cds
+#   mvn -Pnative native:compile -DskipTests    # native, optional
+#
+# Usage: scripts/startup-benchmark.sh [runs] [modes...]
+#   scripts/startup-benchmark.sh 5 jvm aot-cds
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS=${1:-3}
+shift || true
+MODES=${*:-jvm aot aot-cds native}
+PORT=${PORT:-18080}
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-120}
+JAR=target/CourseSearch-0.0.1-SNAPSHOT.jar
+EXEC_JAR=target/CourseSearch-0.0.1-SNAPSHOT-exec.jar
+NATIVE=target/CourseSearch
+
+command_for() {
+  case "$1" in
+    jvm) echo "java -jar $EXEC_JAR" ;;
+    aot) echo "java -Dspring.aot.enabled=true -jar $JAR" ;;
+    aot-cds) echo "java -XX:SharedArchiveFile=target/app.jsa -Xlog:cds=off -Dspring.aot.enabled=true -jar $JAR" ;;
+    native) echo "$NATIVE" ;;
+    *) echo "Unknown mode: $1 (jvm | aot | aot-cds | native)" >&2; exit 1 ;;
+  esac
+}
+
+artifact_for() {
+  case "$1" in
+    jvm) echo "$EXEC_JAR" ;;
+    aot) echo "$JAR" ;;
+    aot-cds) echo "target/app.jsa" ;;
+    native) echo "$NATIVE" ;;
+  esac
+}
+
+now_ms() {
+  echo $(($(date +%s%N) / 1000000))
+}
+
+ok() {
+  [ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT$1")" = "200" ]
+}
+
+median() {
+  sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+RESULTS=$(mktemp)
+trap 'rm -f "$RESULTS"' EXIT
+
+printf '%-8s %4s %16s %10s %8s\n' mode run first-search-ms ready-ms rss-mb
+for mode in $MODES; do
+  if [ ! -e "$(artifact_for "$mode")" ]; then
+    echo "Skipping $mode: $(artifact_for "$mode") not built" >&2
+    continue
+  fi
+
+  for run in $(seq 1 "$RUNS"); do
+    start=$(now_ms)
+    $(command_for "$mode") --server.port="$PORT" > "target/startup-$mode.log" 2>&1 &
+    pid=$!
+
+    first_search=""
+    ready=""
+    deadline=$((start + TIMEOUT_SECONDS * 1000))
+    while [ -z "$ready" ] && [ "$(now_ms)" -lt "$deadline" ]; do
+      if [ -z "$first_search" ] && ok "/api/search"; then
+        first_search=$(($(now_ms) - start))
+      fi
+      if ok "/actuator/health/readiness"; then
+        ready=$(($(now_ms) - start))
+      fi
+      sleep 0.02
+    done
+    if [ -n "$ready" ] && [ -z "$first_search" ] && ok "/api/search"; then
+      first_search=$(($(now_ms) - start))
+    fi
+    rss=$(($(ps -o rss= -p "$pid") / 1024))
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+
+    if [ -z "$ready" ]; then
+      echo "$mode did not become ready within ${TIMEOUT_SECONDS}s, see target/startup-$mode.log" >&2
+      continue
+    fi
+    printf '%-8s %4d %16s %10d %8d\n' "$mode" "$run" "${first_search:--}" "$ready" "$rss"
+    if [ -n "$first_search" ]; then
+      echo "$mode $first_search $ready $rss" >> "$RESULTS"
+    fi
+  done
+done
+
+echo
+printf '%-8s %16s %10s %8s   (medians)\n' mode first-search-ms ready-ms rss-mb
+for mode in $MODES; do
+  if grep -q "^$mode " "$RESULTS"; then
+    printf '%-8s %16s %10s %8s\n' "$mode" \
+      "$(grep "^$mode " "$RESULTS" | cut -d' ' -f2 | median)" \
+      "$(grep "^$mode " "$RESULTS" | cut -d' ' -f3 | median)" \
+      "$(grep "^$mode " "$RESULTS" | cut -d' ' -f4 | median)"
+  fi
+done
@@ -0,0 +1,94 @@
+package com.undo.coursesearch.document;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.undo.coursesearch.dto.SearchResponseDto;
+import lombok.Data;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Decoding the 50 sample courses as hit sources, in the model used before the compact
+ * mapping (BigDecimal numbers, ISO date-times parsed per hit) and in the current one
+ * (doubles, small integers, epoch milliseconds), plus the current model reading
+ * documents of an older index generation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DocumentDecodingBenchmark {
+
+    private static final TypeReference<List<LegacyCourseDocument>> LEGACY_LIST = new TypeReference<>() {
+    };
+    private static final TypeReference<List<CourseDocument>> COMPACT_LIST = new TypeReference<>() {
+    };
+
+    // Configured like the Elasticsearch client's mapper
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private byte[] legacySources;
+    private byte[] compactSources;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = DocumentDecodingBenchmark.class.getResourceAsStream("/sample-courses.json")) {
+            legacySources = in.readAllBytes();
+        }
+        compactSources = objectMapper.writeValueAsBytes(objectMapper.readValue(legacySources, COMPACT_LIST));
+    }
+
+    @Benchmark
+    public List<LegacyCourseDocument> decodeLegacy() throws IOException {
+        return objectMapper.readValue(legacySources, LEGACY_LIST);
+    }
+
+    @Benchmark
+    public List<CourseDocument> decodeCompact() throws IOException {
+        return objectMapper.readValue(compactSources, COMPACT_LIST);
+    }
+
+    // Documents not yet migrated by a reindex from the current index
+    @Benchmark
+    public List<CourseDocument> decodeCompactFromLegacySources() throws IOException {
+        return objectMapper.readValue(legacySources, COMPACT_LIST);
+    }
+
+    @Benchmark
+    public List<SearchResponseDto.CourseDto> decodeAndMapCompact() throws IOException {
+        return objectMapper.readValue(compactSources, COMPACT_LIST).stream()
+                .map(SearchResponseDto.CourseDto::fromDocument)
+                .collect(Collectors.toList());
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class LegacyCourseDocument {
+        private String id;
+        private String title;
+        private String description;
+        private String category;
+        private CourseDocument.CourseType type;
+        private String gradeRange;
+        private BigDecimal minAge;
+        private BigDecimal maxAge;
+        private BigDecimal price;
+
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+        @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+        private LocalDateTime nextSessionDate;
+    }
+}
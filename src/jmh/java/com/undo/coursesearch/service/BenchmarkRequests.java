@@ -0,0 +1,66 @@
+package com.undo.coursesearch.service;
+
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.dto.SearchRequestDto;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Request mix shared by the benchmarks, modelled on the shapes seen on the search page.
+ */
+final class BenchmarkRequests {
+
+    private BenchmarkRequests() {
+    }
+
+    static SearchRequestDto scenario(String name) {
+        SearchRequestDto request = new SearchRequestDto();
+        switch (name) {
+            case "browse" -> {
+                // Landing page: match_all sorted by the next session
+            }
+            case "text" -> request.setQ("physics lab");
+            case "filtered" -> {
+                request.setCategory("Science");
+                request.setType(CourseDocument.CourseType.COURSE);
+                request.setMinAge(new BigDecimal("8"));
+                request.setMaxAge(new BigDecimal("12"));
+                request.setMinPrice(new BigDecimal("50"));
+                request.setMaxPrice(new BigDecimal("300"));
+                request.setSort(SearchRequestDto.SortType.PRICE_ASC);
+            }
+            case "facets" -> {
+                request.setCategory("Science");
+                request.setFacets(true);
+                request.setSize(0);
+            }
+            case "full" -> {
+                request.setQ("creative writing");
+                request.setCategory("Art");
+                request.setType(CourseDocument.CourseType.CLUB);
+                request.setMinAge(new BigDecimal("10"));
+                request.setMaxPrice(new BigDecimal("500"));
+                request.setStartDate(LocalDateTime.of(2025, 9, 1, 0, 0));
+                request.setSort(SearchRequestDto.SortType.PRICE_DESC);
+                request.setPage(2);
+                request.setSize(20);
+            }
+            default -> throw new IllegalArgumentException("Unknown scenario: " + name);
+        }
+        return request;
+    }
+
+    // Only the request-building methods are exercised, so no clients are needed
+    static CourseSearchService searchService() {
+        CourseSearchService service = new CourseSearchService(null, null, null, null, null, null, null, null, null, null);
+        ReflectionTestUtils.setField(service, "facetSize", 20);
+        ReflectionTestUtils.setField(service, "priceFacetInterval", 50.0);
+        ReflectionTestUtils.setField(service, "ageFacetInterval", 2.0);
+        ReflectionTestUtils.setField(service, "dateGranularity", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(service, "trackTotalHitsUpTo", 10000);
+        return service;
+    }
+}
@@ -0,0 +1,66 @@
+package com.undo.coursesearch.service;
+
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.json.JsonpMapper;
+import com.undo.coursesearch.config.ElasticsearchConfig;
+import com.undo.coursesearch.dto.SearchRequestDto;
+import jakarta.json.stream.JsonGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a {@link SearchRequestDto} into the JSON body sent to Elasticsearch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBuildingBenchmark {
+
+    @Param({"browse", "text", "filtered", "facets", "full"})
+    private String scenario;
+
+    private CourseSearchService searchService;
+    private JsonpMapper jsonpMapper;
+    private SearchRequestDto request;
+    private SearchRequest searchRequest;
+
+    @Setup
+    public void setUp() {
+        searchService = BenchmarkRequests.searchService();
+        jsonpMapper = new ElasticsearchConfig().jsonpMapper();
+        request = BenchmarkRequests.scenario(scenario);
+        searchRequest = searchService.buildSearchRequest(request);
+    }
+
+    @Benchmark
+    public Query buildQuery() {
+        return searchService.buildQuery(request);
+    }
+
+    @Benchmark
+    public List<SortOptions> buildSort() {
+        return searchService.buildSort(request);
+    }
+
+    @Benchmark
+    public SearchRequest buildSearchRequest() {
+        return searchService.buildSearchRequest(request);
+    }
+
+    @Benchmark
+    public byte[] serializeSearchRequest() {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (JsonGenerator generator = jsonpMapper.jsonProvider().createGenerator(body)) {
+            searchRequest.serialize(generator, jsonpMapper);
+        }
+        return body.toByteArray();
+    }
+}
@@ -0,0 +1,81 @@
+package com.undo.coursesearch.service;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undo.coursesearch.config.DateTimeConfig;
+import com.undo.coursesearch.config.ElasticsearchConfig;
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.dto.SearchResponseDto;
+import jakarta.json.stream.JsonParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of turning a recorded 10-hit Elasticsearch response into the HTTP response body.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseMappingBenchmark {
+
+    private static final JsonpDeserializer<SearchResponse<CourseDocument>> RESPONSE_DESERIALIZER =
+            SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.<CourseDocument>of(CourseDocument.class));
+
+    private JsonpMapper jsonpMapper;
+    private ObjectMapper objectMapper;
+    private byte[] recordedResponse;
+    private List<CourseDocument> documents;
+    private SearchResponseDto responseDto;
+
+    @Setup
+    public void setUp() throws IOException {
+        jsonpMapper = new ElasticsearchConfig().jsonpMapper();
+        objectMapper = new DateTimeConfig().objectMapper();
+
+        try (InputStream in = ResponseMappingBenchmark.class.getResourceAsStream("/search-response.json")) {
+            recordedResponse = in.readAllBytes();
+        }
+
+        SearchResponse<CourseDocument> response = deserializeResponse();
+        documents = response.hits().hits().stream().map(Hit::source).collect(Collectors.toList());
+        responseDto = SearchResponseDto.builder()
+                .total(response.hits().total().value())
+                .page(0)
+                .size(documents.size())
+                .totalPages(5)
+                .courses(mapDocuments())
+                .build();
+    }
+
+    @Benchmark
+    public SearchResponse<CourseDocument> deserializeResponse() {
+        try (JsonParser parser = jsonpMapper.jsonProvider().createParser(new ByteArrayInputStream(recordedResponse))) {
+            return RESPONSE_DESERIALIZER.deserialize(parser, jsonpMapper);
+        }
+    }
+
+    @Benchmark
+    public List<SearchResponseDto.CourseDto> mapDocuments() {
+        return documents.stream()
+                .map(SearchResponseDto.CourseDto::fromDocument)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] writeResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(responseDto);
+    }
+}
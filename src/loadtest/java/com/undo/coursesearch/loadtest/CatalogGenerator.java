@@ -0,0 +1,201 @@
+package com.undo.coursesearch.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.document.EpochMillis;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic catalog in the {@link CourseDocument} schema. The same seed
+ * always yields the same courses, so runs against different builds are comparable.
+ *
+ * Distributions are modelled on a real catalog rather than uniform noise: categories
+ * follow a Zipf-like popularity curve, titles combine a per-category subject with a
+ * level and a format (so text queries match several courses), prices are log-normal
+ * around a per-type median with a long tail, age bands are a few years wide, and
+ * sessions cluster in the coming weeks with a thin tail up to a year out.
+ */
+public class CatalogGenerator {
+
+    private static final Map<String, List<String>> SUBJECTS = Map.of(
+            "Mathematics", List.of("Algebra", "Geometry", "Calculus", "Statistics", "Number Theory", "Mental Math"),
+            "Science", List.of("Physics", "Chemistry", "Biology", "Astronomy", "Earth Science", "Lab Experiments"),
+            "Programming", List.of("Python", "JavaScript", "Scratch", "Java", "Game Development", "Web Development"),
+            "Technology", List.of("Robotics", "Electronics", "3D Printing", "Machine Learning", "Cybersecurity", "Drones"),
+            "Language", List.of("Spanish", "French", "Mandarin", "Creative Writing", "Public Speaking", "Grammar"),
+            "Music", List.of("Piano", "Guitar", "Violin", "Singing", "Music Theory", "Drums"),
+            "Art", List.of("Sketching", "Painting", "Photography", "Pottery", "Animation", "Digital Art"));
+
+    // Most popular first; weights fall off roughly as 1/rank
+    private static final List<String> CATEGORIES = List.of(
+            "Programming", "Mathematics", "Science", "Technology", "Language", "Music", "Art");
+
+    private static final List<String> LEVELS = List.of(
+            "Introduction to", "Basics of", "Fundamentals of", "Intermediate", "Advanced", "Mastering");
+    private static final List<String> FORMATS = List.of(
+            "Workshop", "Bootcamp", "Club", "Camp", "Lab", "Masterclass", "for Kids", "for Teens");
+    private static final List<String> GRADE_RANGES = List.of(
+            "K-2nd", "3rd-5th", "6th-8th", "9th-12th", "6th-12th");
+
+    private final long seed;
+    private final LocalDateTime origin;
+    private final double[] categoryWeights;
+
+    public CatalogGenerator(long seed, LocalDateTime origin) {
+        this.seed = seed;
+        this.origin = origin.truncatedTo(ChronoUnit.MINUTES);
+        this.categoryWeights = new double[CATEGORIES.size()];
+        double total = 0;
+        for (int i = 0; i < categoryWeights.length; i++) {
+            total += 1.0 / (i + 1);
+            categoryWeights[i] = total;
+        }
+        for (int i = 0; i < categoryWeights.length; i++) {
+            categoryWeights[i] /= total;
+        }
+    }
+
+    /**
+     * The course with the given ordinal; independent of the others, so a catalog can
+     * be generated in any order or in parallel.
+     */
+    public CourseDocument course(long ordinal) {
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + ordinal);
+
+        String category = pickCategory(random.nextDouble());
+        String subject = pick(random, SUBJECTS.get(category));
+        CourseDocument.CourseType type = pickType(random.nextDouble());
+        String title = title(random, subject, type);
+
+        int minAge = 5 + random.nextInt(11);
+        int maxAge = Math.min(18, minAge + 2 + random.nextInt(5));
+
+        return CourseDocument.builder()
+                .id(String.valueOf(ordinal + 1))
+                .title(title)
+                .description("Learn about " + subject.toLowerCase() + " in this " + kind(type)
+                        + " designed for young learners aged " + minAge + " to " + maxAge + ".")
+                .category(category)
+                .type(type)
+                .gradeRange(pick(random, GRADE_RANGES))
+                .minAge(minAge)
+                .maxAge(maxAge)
+                .price(price(random, type))
+                .nextSessionDate(EpochMillis.of(sessionDate(random)))
+                .build();
+    }
+
+    public List<CourseDocument> courses(long from, int count) {
+        List<CourseDocument> courses = new ArrayList<>(count);
+        for (long i = from; i < from + count; i++) {
+            courses.add(course(i));
+        }
+        return courses;
+    }
+
+    /**
+     * Streams {@code size} courses as a JSON array, the format read by
+     * {@code POST /api/admin/courses/load} and {@code app.data.sample-file}.
+     */
+    public void write(long size, OutputStream out) throws IOException {
+        ObjectMapper mapper = objectMapper();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            for (long i = 0; i < size; i++) {
+                mapper.writeValue(generator, course(i));
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    static ObjectMapper objectMapper() {
+        return new ObjectMapper()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+
+    public static List<String> categories() {
+        return CATEGORIES;
+    }
+
+    // In a fixed order, unlike the map's iteration order, so generated traffic is reproducible
+    public static List<String> subjects() {
+        return CATEGORIES.stream().flatMap(category -> SUBJECTS.get(category).stream()).toList();
+    }
+
+    private String pickCategory(double p) {
+        for (int i = 0; i < categoryWeights.length; i++) {
+            if (p < categoryWeights[i]) {
+                return CATEGORIES.get(i);
+            }
+        }
+        return CATEGORIES.get(CATEGORIES.size() - 1);
+    }
+
+    private static CourseDocument.CourseType pickType(double p) {
+        if (p < 0.6) {
+            return CourseDocument.CourseType.COURSE;
+        }
+        return p < 0.85 ? CourseDocument.CourseType.CLUB : CourseDocument.CourseType.ONE_TIME;
+    }
+
+    private static String kind(CourseDocument.CourseType type) {
+        return switch (type) {
+            case COURSE -> "course";
+            case CLUB -> "club";
+            case ONE_TIME -> "one-time workshop";
+        };
+    }
+
+    private static String title(SplittableRandom random, String subject, CourseDocument.CourseType type) {
+        String level = pick(random, LEVELS);
+        String format = type == CourseDocument.CourseType.CLUB ? "Club" : pick(random, FORMATS);
+        return switch (random.nextInt(3)) {
+            case 0 -> level + " " + subject;
+            case 1 -> subject + " " + format;
+            default -> level + " " + subject + " " + format;
+        };
+    }
+
+    // Log-normal around a per-type median; about 5% of courses are free
+    private static double price(SplittableRandom random, CourseDocument.CourseType type) {
+        if (random.nextDouble() < 0.05) {
+            return 0;
+        }
+        double median = switch (type) {
+            case COURSE -> 300;
+            case CLUB -> 120;
+            case ONE_TIME -> 40;
+        };
+        double price = median * Math.exp(0.6 * gaussian(random));
+        return Math.round(Math.min(price, 5000) * 100) / 100.0;
+    }
+
+    // Most sessions within the next few weeks (exponential), the rest spread over a year
+    private LocalDateTime sessionDate(SplittableRandom random) {
+        long minutes = random.nextDouble() < 0.9
+                ? (long) (-Math.log(1 - random.nextDouble()) * 21 * 24 * 60)
+                : random.nextLong(365L * 24 * 60);
+        return origin.plusMinutes(minutes);
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller; SplittableRandom has no nextGaussian on Java 17
+        double u = 1 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static <T> T pick(SplittableRandom random, List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+}
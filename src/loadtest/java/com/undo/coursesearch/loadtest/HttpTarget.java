@@ -0,0 +1,87 @@
+package com.undo.coursesearch.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.dto.SearchRequestDto;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * A running instance of the service, e.g. {@code --base-url=http://localhost:8080}.
+ * Non-2xx responses, including {@code 503} from load shedding, count as errors.
+ */
+public class HttpTarget implements LoadTarget {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private final String baseUrl;
+    private final Duration timeout;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = CatalogGenerator.objectMapper();
+
+    public HttpTarget(String baseUrl, Duration timeout) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    public void search(SearchRequestDto request) throws IOException, InterruptedException {
+        StringJoiner query = new StringJoiner("&");
+        param(query, "q", request.getQ());
+        param(query, "category", request.getCategory());
+        param(query, "type", request.getType());
+        param(query, "minAge", request.getMinAge());
+        param(query, "maxAge", request.getMaxAge());
+        param(query, "minPrice", request.getMinPrice());
+        param(query, "maxPrice", request.getMaxPrice());
+        param(query, "startDate", request.getStartDate() != null ? DATE_FORMAT.format(request.getStartDate()) : null);
+        param(query, "sort", request.getSort().getValue());
+        param(query, "page", request.getPage());
+        param(query, "size", request.getSize());
+        send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/search?" + query)).GET());
+    }
+
+    @Override
+    public void suggest(String prefix) throws IOException, InterruptedException {
+        send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/search/suggest?q=" + encode(prefix))).GET());
+    }
+
+    @Override
+    public void ingest(List<CourseDocument> courses) throws IOException, InterruptedException {
+        send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/admin/courses/load"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(courses))));
+    }
+
+    private void send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request.timeout(timeout).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("HTTP " + response.statusCode());
+        }
+    }
+
+    private static void param(StringJoiner query, String name, Object value) {
+        if (value != null) {
+            query.add(name + "=" + encode(value.toString()));
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,57 @@
+package com.undo.coursesearch.loadtest;
+
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.dto.SearchRequestDto;
+import com.undo.coursesearch.engine.InMemorySearchEngine;
+import com.undo.coursesearch.metrics.SearchMetrics;
+import com.undo.coursesearch.service.CourseSearchService;
+import com.undo.coursesearch.suggest.SuggestionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Stand-in backend that needs no network: {@link CourseSearchService} with the
+ * in-memory engine as primary and the local suggestion index, as configured with
+ * {@code app.search.engine.in-memory=primary}. Measures the service's own search and
+ * suggest paths, and indexing into its in-process structures.
+ */
+public class InMemoryTarget implements LoadTarget {
+
+    private final InMemorySearchEngine engine;
+    private final SuggestionIndex suggestionIndex;
+    private final CourseSearchService searchService;
+    // The initial catalog is loaded on one thread, before any traffic
+    private boolean ready;
+
+    public InMemoryTarget() {
+        this.engine = new InMemorySearchEngine(InMemorySearchEngine.Mode.PRIMARY, Duration.ofMinutes(1));
+        this.suggestionIndex = new SuggestionIndex(true, 10);
+        // Requests the engine serves never reach the clients, caches or bulkheads
+        this.searchService = new CourseSearchService(null, null, null, null, null, null,
+                suggestionIndex, engine, null, new SearchMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Override
+    public void search(SearchRequestDto request) {
+        searchService.searchCourses(request);
+    }
+
+    @Override
+    public void suggest(String prefix) {
+        searchService.getSuggestions(prefix);
+    }
+
+    @Override
+    public void ingest(List<CourseDocument> courses) {
+        courses.forEach(CourseDocument::initializeSuggestFields);
+        engine.index(courses);
+        suggestionIndex.index(courses);
+        if (!ready) {
+            ready = true;
+            engine.markReady();
+            suggestionIndex.markReady();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.undo.coursesearch.loadtest;
+
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.dto.SearchRequestDto;
+
+import java.util.List;
+
+/**
+ * The system under load. Every call blocks until the response has been fully read,
+ * and throws if the request failed, so the driver can time it end to end.
+ */
+public interface LoadTarget extends AutoCloseable {
+
+    void search(SearchRequestDto request) throws Exception;
+
+    void suggest(String prefix) throws Exception;
+
+    void ingest(List<CourseDocument> courses) throws Exception;
+
+    @Override
+    default void close() {
+    }
+}
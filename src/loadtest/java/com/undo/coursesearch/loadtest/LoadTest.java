@@ -0,0 +1,293 @@
+package com.undo.coursesearch.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Synthetic catalogs and open-loop load runs, via the {@code loadtest} profile:
+ * <pre>
+ * # Write a catalog in the sample-file format
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="generate --size=100000 --output=target/catalog.json"
+ *
+ * # Replay a traffic mix at a fixed arrival rate
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="run --target=http --rate=500 --duration=60s"
+ * </pre>
+ * Requests are issued on a fixed schedule regardless of how fast responses come back,
+ * and latency is measured from each request's scheduled start, so time spent queued
+ * behind a slow response is counted instead of hidden (no coordinated omission).
+ */
+public class LoadTest {
+
+    enum Operation {
+        SEARCH, SUGGEST, INGEST
+    }
+
+    // Microseconds, up to one minute at three significant digits
+    private static final long HIGHEST_TRACKABLE = TimeUnit.MINUTES.toMicros(1);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        String command = args.length > 0 && !args[0].startsWith("--") ? args[0] : "run";
+        switch (command) {
+            case "generate" -> generate(options);
+            case "run" -> run(options);
+            default -> throw new IllegalArgumentException("Unknown command: " + command + " (generate | run)");
+        }
+    }
+
+    private static void generate(Map<String, String> options) throws IOException {
+        long size = Long.parseLong(options.getOrDefault("size", "10000"));
+        Path output = Path.of(options.getOrDefault("output", "target/catalog.json"));
+        CatalogGenerator generator = new CatalogGenerator(seed(options), origin(options));
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            generator.write(size, out);
+        }
+        System.out.printf("Wrote %d courses to %s%n", size, output);
+    }
+
+    private static void run(Map<String, String> options) throws Exception {
+        long catalogSize = Long.parseLong(options.getOrDefault("catalog-size", "10000"));
+        int ingestBatchSize = Integer.parseInt(options.getOrDefault("ingest-batch", "100"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+        Duration warmup = duration(options.getOrDefault("warmup", "10s"));
+        Duration duration = duration(options.getOrDefault("duration", "60s"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "64"));
+        Map<Operation, Double> mix = mix(options.getOrDefault("mix", "search=80,suggest=18,ingest=2"));
+        String histogramDir = options.get("histogram-dir");
+
+        LocalDateTime origin = origin(options);
+        CatalogGenerator catalog = new CatalogGenerator(seed(options), origin);
+        TrafficGenerator traffic = new TrafficGenerator(catalog, catalogSize, ingestBatchSize, origin);
+
+        try (LoadTarget target = target(options)) {
+            if (!"false".equals(options.get("load-catalog"))) {
+                System.out.printf("Loading %d courses...%n", catalogSize);
+                for (long from = 0; from < catalogSize; from += 1000) {
+                    target.ingest(catalog.courses(from, (int) Math.min(1000, catalogSize - from)));
+                }
+            }
+
+            System.out.printf("Running %s at %.0f req/s for %s after %s of warmup%n", mix, rate, duration, warmup);
+            Map<Operation, Result> results = drive(target, traffic, mix, rate, warmup, duration, threads, seed(options));
+            report(results, duration, histogramDir);
+        }
+    }
+
+    /**
+     * Schedules request {@code i} at {@code start + i / rate} and hands it to the
+     * worker pool. Only requests scheduled after the warmup are recorded.
+     */
+    private static Map<Operation, Result> drive(LoadTarget target, TrafficGenerator traffic,
+                                                Map<Operation, Double> mix, double rate,
+                                                Duration warmup, Duration duration, int threads,
+                                                long seed) throws InterruptedException {
+        Map<Operation, Result> results = new EnumMap<>(Operation.class);
+        mix.keySet().forEach(operation -> results.put(operation, new Result()));
+
+        SplittableRandom random = new SplittableRandom(seed);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        for (long i = 0; ; i++) {
+            long scheduled = start + (long) (i * intervalNanos);
+            if (scheduled >= end) {
+                break;
+            }
+            Operation operation = pick(mix, random.nextDouble());
+            Call request = switch (operation) {
+                case SEARCH -> {
+                    var search = traffic.search(random);
+                    yield () -> target.search(search);
+                }
+                case SUGGEST -> {
+                    String prefix = traffic.suggestPrefix(random);
+                    yield () -> target.suggest(prefix);
+                }
+                case INGEST -> {
+                    var courses = traffic.ingestBatch(random);
+                    yield () -> target.ingest(courses);
+                }
+            };
+
+            Result result = scheduled >= measureFrom ? results.get(operation) : null;
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            workers.execute(() -> {
+                boolean failed = false;
+                try {
+                    request.run();
+                } catch (Exception e) {
+                    failed = true;
+                }
+                if (result != null) {
+                    result.record(System.nanoTime() - scheduled, failed);
+                }
+            });
+        }
+
+        workers.shutdown();
+        if (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+            System.out.println("Requests still in flight after one minute; they are not reported");
+            workers.shutdownNow();
+        }
+        return results;
+    }
+
+    private static void report(Map<Operation, Result> results, Duration duration, String histogramDir)
+            throws IOException {
+        System.out.printf("%n%-8s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "op", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<Operation, Result> entry : results.entrySet()) {
+            Histogram histogram = entry.getValue().latencies.getIntervalHistogram();
+            long count = histogram.getTotalCount();
+            System.out.printf("%-8s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey().name().toLowerCase(), count, entry.getValue().errors.get(),
+                    count / (duration.toMillis() / 1000.0),
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+
+            if (histogramDir != null) {
+                Path file = Path.of(histogramDir, entry.getKey().name().toLowerCase() + ".hgrm");
+                Files.createDirectories(file.getParent());
+                try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                    // In milliseconds, loadable by the HdrHistogram plotter
+                    histogram.outputPercentileDistribution(out, 1000.0);
+                }
+            }
+        }
+    }
+
+    private static LoadTarget target(Map<String, String> options) {
+        String target = options.getOrDefault("target", "in-memory");
+        return switch (target) {
+            case "in-memory" -> new InMemoryTarget();
+            case "http" -> new HttpTarget(options.getOrDefault("base-url", "http://localhost:8080"),
+                    duration(options.getOrDefault("timeout", "10s")));
+            default -> throw new IllegalArgumentException("Unknown target: " + target + " (in-memory | http)");
+        };
+    }
+
+    private static final class Result {
+        private final Recorder latencies = new Recorder(HIGHEST_TRACKABLE, 3);
+        private final AtomicLong errors = new AtomicLong();
+
+        void record(long nanos, boolean failed) {
+            latencies.recordValue(Math.min(HIGHEST_TRACKABLE, TimeUnit.NANOSECONDS.toMicros(nanos)));
+            if (failed) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        void run() throws Exception;
+    }
+
+    private static Operation pick(Map<Operation, Double> mix, double p) {
+        double cumulative = 0;
+        Operation last = null;
+        for (Map.Entry<Operation, Double> entry : mix.entrySet()) {
+            cumulative += entry.getValue();
+            last = entry.getKey();
+            if (p < cumulative) {
+                return last;
+            }
+        }
+        return last;
+    }
+
+    // "search=80,suggest=18,ingest=2" as fractions that sum to one
+    private static Map<Operation, Double> mix(String value) {
+        Map<Operation, Double> weights = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] pair = part.split("=");
+            double weight = Double.parseDouble(pair[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), weight);
+            }
+        }
+        double total = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+        if (total <= 0) {
+            throw new IllegalArgumentException("The mix must contain at least one operation");
+        }
+        weights.replaceAll((operation, weight) -> weight / total);
+        return weights;
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int separator = arg.indexOf('=');
+                if (separator < 0) {
+                    options.put(arg.substring(2), "true");
+                } else {
+                    options.put(arg.substring(2, separator), arg.substring(separator + 1));
+                }
+            }
+        }
+        return options;
+    }
+
+    private static long seed(Map<String, String> options) {
+        return Long.parseLong(options.getOrDefault("seed", "42"));
+    }
+
+    // Dates are generated relative to this, so a catalog never goes stale
+    private static LocalDateTime origin(Map<String, String> options) {
+        String origin = options.get("origin");
+        return origin != null ? LocalDateTime.parse(origin) : LocalDateTime.now();
+    }
+
+    // "500ms", "30s", "5m", or an ISO-8601 duration
+    private static Duration duration(String value) {
+        if (value.startsWith("P") || value.startsWith("p")) {
+            return Duration.parse(value);
+        }
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Unknown duration: " + value);
+        };
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,105 @@
+package com.undo.coursesearch.loadtest;
+
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.dto.SearchRequestDto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Requests shaped like the search page's traffic: most searches are short text
+ * queries (some misspelled) or a category browse, filters are added a few at a time,
+ * and deep pages are rare. Suggest prefixes are what users type before picking one.
+ */
+class TrafficGenerator {
+
+    private static final List<String> SUBJECTS = CatalogGenerator.subjects();
+    private static final List<String> CATEGORIES = CatalogGenerator.categories();
+
+    private final CatalogGenerator catalog;
+    private final long catalogSize;
+    private final int ingestBatchSize;
+    private final LocalDateTime now;
+
+    private long nextNewCourse;
+
+    TrafficGenerator(CatalogGenerator catalog, long catalogSize, int ingestBatchSize, LocalDateTime now) {
+        this.catalog = catalog;
+        this.catalogSize = catalogSize;
+        this.ingestBatchSize = ingestBatchSize;
+        this.now = now;
+        this.nextNewCourse = catalogSize;
+    }
+
+    SearchRequestDto search(SplittableRandom random) {
+        SearchRequestDto request = new SearchRequestDto();
+
+        double shape = random.nextDouble();
+        if (shape < 0.5) {
+            request.setQ(textQuery(random));
+        } else if (shape < 0.8) {
+            request.setCategory(pick(random, CATEGORIES));
+        } else if (shape < 0.9) {
+            request.setQ(textQuery(random));
+            request.setCategory(pick(random, CATEGORIES));
+        }
+        // Otherwise the landing page: no text, no category
+
+        if (random.nextDouble() < 0.3) {
+            int age = 5 + random.nextInt(12);
+            request.setMinAge(BigDecimal.valueOf(age));
+            request.setMaxAge(BigDecimal.valueOf(age + 2));
+        }
+        if (random.nextDouble() < 0.2) {
+            request.setMaxPrice(BigDecimal.valueOf(50 + 50 * random.nextInt(10)));
+        }
+        if (random.nextDouble() < 0.1) {
+            request.setType(pick(random, List.of(CourseDocument.CourseType.values())));
+        }
+        if (random.nextDouble() < 0.2) {
+            request.setStartDate(now.plusDays(random.nextInt(30)));
+        }
+
+        double sort = random.nextDouble();
+        request.setSort(sort < 0.7 ? SearchRequestDto.SortType.UPCOMING
+                : sort < 0.9 ? SearchRequestDto.SortType.PRICE_ASC : SearchRequestDto.SortType.PRICE_DESC);
+
+        double page = random.nextDouble();
+        request.setPage(page < 0.8 ? 0 : page < 0.95 ? 1 + random.nextInt(2) : 3 + random.nextInt(8));
+        return request;
+    }
+
+    String suggestPrefix(SplittableRandom random) {
+        String subject = pick(random, SUBJECTS).toLowerCase();
+        return subject.substring(0, Math.min(subject.length(), 2 + random.nextInt(4)));
+    }
+
+    /**
+     * Half new courses, half rewrites of existing ones, as a feed of catalog changes.
+     */
+    List<CourseDocument> ingestBatch(SplittableRandom random) {
+        if (random.nextBoolean()) {
+            long from = nextNewCourse;
+            nextNewCourse += ingestBatchSize;
+            return catalog.courses(from, ingestBatchSize);
+        }
+        return catalog.courses(random.nextLong(Math.max(1, catalogSize - ingestBatchSize)), ingestBatchSize);
+    }
+
+    private static String textQuery(SplittableRandom random) {
+        String subject = pick(random, SUBJECTS).toLowerCase();
+        String word = subject.split(" ")[0];
+        if (word.length() > 4 && random.nextDouble() < 0.15) {
+            // A single transposition, within the fuzziness Elasticsearch allows
+            int i = 1 + random.nextInt(word.length() - 2);
+            word = word.substring(0, i) + word.charAt(i + 1) + word.charAt(i) + word.substring(i + 2);
+        }
+        return random.nextDouble() < 0.3 ? subject : word;
+    }
+
+    private static <T> T pick(SplittableRandom random, List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+}
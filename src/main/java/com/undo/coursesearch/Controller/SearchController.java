@@ -1,19 +1,42 @@
 package com.undo.coursesearch.Controller;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.undo.coursesearch.cache.SearchResultCache;
+import com.undo.coursesearch.dto.CourseChangeDto;
 import com.undo.coursesearch.dto.SearchRequestDto;
 import com.undo.coursesearch.dto.SearchResponseDto;
+import com.undo.coursesearch.limit.OverloadedException;
+import com.undo.coursesearch.metrics.SearchMetrics;
+import com.undo.coursesearch.service.BulkIndexer;
+import com.undo.coursesearch.service.CourseIndexManager;
 import com.undo.coursesearch.service.CourseSearchService;
 import com.undo.coursesearch.service.DataIndexingService;
+import com.undo.coursesearch.service.RawSearchService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Response;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 @RestController
@@ -24,9 +47,50 @@ public class SearchController {
 
     private final CourseSearchService courseSearchService;
     private final DataIndexingService dataIndexingService;
+    private final CourseIndexManager courseIndexManager;
+    private final RawSearchService rawSearchService;
+    private final SearchResultCache searchResultCache;
+    private final SearchResultCache facetSnapshotCache;
+    private final SearchMetrics searchMetrics;
+    private final ObjectMapper objectMapper;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     @GetMapping("/search")
-    public ResponseEntity<SearchResponseDto> searchCourses(
+    public CompletableFuture<ResponseEntity<SearchResponseDto>> searchCourses(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) BigDecimal minAge,
+            @RequestParam(required = false) BigDecimal maxAge,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(defaultValue = "upcoming") String sort,
+            @RequestParam(defaultValue = "0") Integer page,
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(defaultValue = "full") String view,
+            @RequestParam(required = false) Long knownTotal) {
+
+        SearchRequestDto request = toSearchRequest(q, minAge, maxAge, category, type, minPrice, maxPrice,
+                startDate, sort, page, size, fields, view, knownTotal);
+        request.setCursor(cursor);
+        request.setFacets(facets);
+
+        searchMetrics.bindToCurrentRequest(searchMetrics.searchTags(request));
+
+        return courseSearchService.searchCoursesAsync(request).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Same results as {@code /search}, with each course's stored JSON streamed through
+     * unchanged instead of being decoded and re-encoded. Cursors and facets are not supported.
+     */
+    @GetMapping("/search/raw")
+    public ResponseEntity<StreamingResponseBody> searchCoursesRaw(
             @RequestParam(required = false) String q,
             @RequestParam(required = false) BigDecimal minAge,
             @RequestParam(required = false) BigDecimal maxAge,
@@ -37,8 +101,90 @@ public class SearchController {
             @RequestParam(required = false) LocalDateTime startDate,
             @RequestParam(defaultValue = "upcoming") String sort,
             @RequestParam(defaultValue = "0") Integer page,
-            @RequestParam(defaultValue = "10") Integer size) {
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(defaultValue = "full") String view,
+            @RequestParam(required = false) Long knownTotal) {
 
+        SearchRequestDto request = toSearchRequest(q, minAge, maxAge, category, type, minPrice, maxPrice,
+                startDate, sort, page, size, fields, view, knownTotal);
+
+        Response response = rawSearchService.execute(request);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> rawSearchService.write(request, response, out));
+    }
+
+    /**
+     * Every course matching the filters as NDJSON, one course per line in the
+     * {@code /search} format, gzip-compressed if the client accepts it. Courses are
+     * read page by page from a point-in-time as the response is written, so memory
+     * stays flat for any result size.
+     *
+     * Written on the request thread rather than as a {@link StreamingResponseBody}, so
+     * a long export is not cut off by the async request timeout. A failure after the
+     * first course ends the response without its final chunk, which clients see as
+     * a truncated transfer.
+     */
+    @GetMapping("/search/export")
+    public void exportCourses(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) BigDecimal minAge,
+            @RequestParam(required = false) BigDecimal maxAge,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(defaultValue = "full") String view,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+
+        SearchRequestDto request = toSearchRequest(q, minAge, maxAge, category, type, minPrice, maxPrice,
+                startDate, "upcoming", 0, 10, fields, view, null);
+
+        try (Stream<SearchResponseDto.CourseDto> courses = courseSearchService.exportCourses(request)) {
+            boolean gzip = acceptsGzip(acceptEncoding);
+            response.setContentType(NDJSON.toString());
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (gzip) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+
+            // The servlet buffer decides when to flush, not every line
+            ObjectWriter writer = objectMapper.writerFor(SearchResponseDto.CourseDto.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            try (OutputStream out = gzip
+                    ? new GZIPOutputStream(response.getOutputStream(), 8192)
+                    : response.getOutputStream();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out).setRootValueSeparator(null)) {
+                for (SearchResponseDto.CourseDto course : (Iterable<SearchResponseDto.CourseDto>) courses::iterator) {
+                    writer.writeValue(generator, course);
+                    generator.writeRaw('\n');
+                }
+            }
+        }
+    }
+
+    // "gzip", possibly among others, and not refused with q=0
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private SearchRequestDto toSearchRequest(String q, BigDecimal minAge, BigDecimal maxAge, String category,
+                                             String type, BigDecimal minPrice, BigDecimal maxPrice,
+                                             LocalDateTime startDate, String sort, Integer page, Integer size,
+                                             List<String> fields, String view, Long knownTotal) {
         SearchRequestDto request = new SearchRequestDto();
         request.setQ(q);
         request.setMinAge(minAge);
@@ -60,30 +206,40 @@ public class SearchController {
         request.setSort(SearchRequestDto.SortType.fromString(sort));
         request.setPage(page);
         request.setSize(size);
+        request.setFields(fields);
+        request.setView(SearchRequestDto.View.fromString(view));
+        request.setKnownTotal(knownTotal);
+        return request;
+    }
 
-        log.debug("Search request: {}", request);
-
-        SearchResponseDto response = courseSearchService.searchCourses(request);
-        return ResponseEntity.ok(response);
+    @PostMapping("/search/batch")
+    public CompletableFuture<ResponseEntity<List<SearchResponseDto>>> searchCoursesBatch(
+            @RequestBody List<SearchRequestDto> requests) {
+        return courseSearchService.searchCoursesBatchAsync(requests).thenApply(ResponseEntity::ok);
     }
 
     @GetMapping("/search/suggest")
-    public ResponseEntity<Map<String, List<String>>> getSuggestions(
+    public CompletableFuture<ResponseEntity<Map<String, List<String>>>> getSuggestions(
             @RequestParam String q) {
 
         if (q == null || q.trim().length() < 2) {
-            return ResponseEntity.badRequest().body(Map.of("suggestions", List.of()));
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(Map.of("suggestions", List.of())));
         }
 
-        List<String> suggestions = courseSearchService.getSuggestions(q.trim());
-        return ResponseEntity.ok(Map.of("suggestions", suggestions));
+        searchMetrics.bindToCurrentRequest(searchMetrics.suggestTags());
+        return courseSearchService.getSuggestionsAsync(q.trim())
+                .thenApply(suggestions -> ResponseEntity.ok(Map.of("suggestions", suggestions)));
     }
 
     @PostMapping("/admin/reindex")
-    public ResponseEntity<Map<String, String>> reindexData() {
+    public ResponseEntity<Map<String, String>> reindexData(
+            @RequestParam(defaultValue = "sample") String source) {
         try {
-            dataIndexingService.reindexData();
+            dataIndexingService.reindexData("current".equalsIgnoreCase(source));
             return ResponseEntity.ok(Map.of("message", "Data reindexed successfully"));
+        } catch (OverloadedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Failed to reindex data", e);
             return ResponseEntity.internalServerError()
@@ -91,6 +247,54 @@ public class SearchController {
         }
     }
 
+    @PostMapping(value = "/admin/courses/load", consumes = "application/json")
+    public ResponseEntity<?> loadCourses(InputStream body) {
+        try {
+            BulkIndexer.BulkIndexingResult result = dataIndexingService.loadCourses(body);
+            return ResponseEntity.ok(result);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            log.error("Failed to load courses", e);
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Failed to load courses: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Versioned upserts, partial updates and deletes, e.g.
+     * {@code [{"op": "update", "id": "42", "version": 7, "fields": {"price": 99.0}}]}.
+     */
+    @PostMapping(value = "/admin/courses/changes", consumes = "application/json")
+    public ResponseEntity<?> applyChanges(@RequestBody List<CourseChangeDto> changes) {
+        try {
+            return ResponseEntity.ok(dataIndexingService.applyChanges(changes));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            log.error("Failed to apply course changes", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Failed to apply course changes: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/admin/cache/stats")
+    public ResponseEntity<Map<String, Object>> cacheStats() {
+        Map<String, Object> shardRequestCache;
+        try {
+            shardRequestCache = courseIndexManager.requestCacheStats();
+        } catch (Exception e) {
+            log.warn("Failed to read shard request cache stats", e);
+            shardRequestCache = Map.of("error", String.valueOf(e.getMessage()));
+        }
+
+        return ResponseEntity.ok(Map.of(
+                "search", searchResultCache.stats(),
+                "facets", facetSnapshotCache.stats(),
+                "shardRequestCache", shardRequestCache
+        ));
+    }
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
         return ResponseEntity.ok(Map.of(
@@ -99,4 +303,18 @@ public class SearchController {
                 "timestamp", LocalDateTime.now().toString()
         ));
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    // Load shed by a bulkhead or rejected by Elasticsearch; clients should back off rather than retry at once
+    @ExceptionHandler(OverloadedException.class)
+    public ResponseEntity<Map<String, String>> handleOverloaded(OverloadedException e) {
+        long retryAfterSeconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(Map.of("error", e.getMessage()));
+    }
+}
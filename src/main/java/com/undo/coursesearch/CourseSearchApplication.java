@@ -2,8 +2,11 @@ package com.undo.coursesearch;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.elasticsearch.ElasticsearchRestClientAutoConfiguration;
 
-@SpringBootApplication
+// ElasticsearchConfig builds the RestClient, and its Sniffer only when app.elasticsearch.client.sniffer.enabled;
+// Boot's would otherwise start sniffing whenever the sniffer jar is on the classpath
+@SpringBootApplication(exclude = ElasticsearchRestClientAutoConfiguration.class)
 public class CourseSearchApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,71 @@
+package com.undo.coursesearch.cache;
+
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.dto.SearchRequestDto;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Normalized form of a {@link SearchRequestDto}. Requests that Elasticsearch would
+ * answer identically map to equal keys, e.g. "Physics " and "physics", a price of
+ * 10 and 10.00, or start dates that round to the same query date.
+ */
+public record SearchCacheKey(
+        long generation,
+        String q,
+        BigDecimal minAge,
+        BigDecimal maxAge,
+        String category,
+        CourseDocument.CourseType type,
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        LocalDateTime startDate,
+        SearchRequestDto.SortType sort,
+        int page,
+        int size,
+        boolean facets,
+        List<String> fields,
+        Long knownTotal) {
+
+    /**
+     * @param dateGranularity what {@code startDate} is rounded down to in the query,
+     *                        {@code app.search.query.date-granularity}
+     */
+    public static SearchCacheKey of(SearchRequestDto request, long generation, Duration dateGranularity) {
+        return new SearchCacheKey(
+                generation,
+                request.hasTextSearch() ? normalizeText(request.getQ()) : null,
+                normalize(request.getMinAge()),
+                normalize(request.getMaxAge()),
+                request.getCategory() != null && !request.getCategory().isEmpty() ? request.getCategory() : null,
+                request.getType(),
+                normalize(request.getMinPrice()),
+                normalize(request.getMaxPrice()),
+                request.roundedStartDate(dateGranularity),
+                request.getSort(),
+                request.getPage(),
+                request.getSize(),
+                request.isFacets(),
+                normalizeFields(request.projectedFields()),
+                request.skipsTotalCount() ? request.getKnownTotal() : null
+        );
+    }
+
+    // The standard analyzer lowercases and splits on whitespace, so neither affects the result
+    private static String normalizeText(String q) {
+        return q.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    // The response lists fields in a fixed order, so the requested order doesn't matter
+    private static List<String> normalizeFields(List<String> fields) {
+        return fields != null ? fields.stream().distinct().sorted().toList() : null;
+    }
+
+    private static BigDecimal normalize(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros() : null;
+    }
+}
@@ -0,0 +1,144 @@
+package com.undo.coursesearch.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.undo.coursesearch.dto.SearchRequestDto;
+import com.undo.coursesearch.dto.SearchResponseDto;
+import com.undo.coursesearch.service.IndexChangedEvent;
+import com.undo.coursesearch.service.IndexGeneration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-memory cache in front of {@code CourseSearchService.searchCourses}.
+ *
+ * Entries are evicted by size and TTL, and dropped wholesale whenever the index
+ * generation changes. Concurrent misses for the same key share a single in-flight
+ * future, so only one of them reaches Elasticsearch. Instances are defined in
+ * {@link com.undo.coursesearch.config.CacheConfig}.
+ */
+@Slf4j
+public class SearchResultCache {
+
+    private final IndexGeneration indexGeneration;
+    private final boolean enabled;
+    private final Duration dateGranularity;
+    private final AsyncCache<SearchCacheKey, SearchResponseDto> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param ttl             time after which entries expire, or {@code null} to keep
+     *                        them until the index changes
+     * @param dateGranularity what the query rounds {@code startDate} down to, so that
+     *                        start dates in the same step share an entry
+     */
+    public SearchResultCache(IndexGeneration indexGeneration, boolean enabled, long maxSize, Duration ttl,
+                             Duration dateGranularity) {
+        this.indexGeneration = indexGeneration;
+        this.enabled = enabled;
+        this.dateGranularity = dateGranularity;
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .removalListener((key, value, cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictions.increment();
+                    }
+                });
+        if (ttl != null) {
+            builder.expireAfterWrite(ttl);
+        }
+        this.cache = builder.buildAsync();
+    }
+
+    public SearchResponseDto get(SearchRequestDto request, Supplier<SearchResponseDto> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        SearchCacheKey key = SearchCacheKey.of(request, indexGeneration.current(), dateGranularity);
+        CompletableFuture<SearchResponseDto> pending = new CompletableFuture<>();
+        CompletableFuture<SearchResponseDto> existing = cache.asMap().putIfAbsent(key, pending);
+
+        if (existing != null) {
+            hits.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                // The leader's failure is rethrown as-is so callers see the same exception type
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        misses.increment();
+        try {
+            SearchResponseDto response = loader.get();
+            pending.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            // Failed futures are removed by Caffeine, so the next caller retries the backend
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Async variant of {@link #get}; the loader must not block, since it is invoked
+     * while the cache reserves the key.
+     */
+    public CompletableFuture<SearchResponseDto> getAsync(SearchRequestDto request,
+                                                         Supplier<CompletableFuture<SearchResponseDto>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        SearchCacheKey key = SearchCacheKey.of(request, indexGeneration.current(), dateGranularity);
+        boolean[] loaded = new boolean[1];
+        CompletableFuture<SearchResponseDto> result = cache.get(key, (k, executor) -> {
+            loaded[0] = true;
+            return loader.get();
+        });
+
+        (loaded[0] ? misses : hits).increment();
+        return result;
+    }
+
+    @EventListener
+    public void onIndexChanged(IndexChangedEvent event) {
+        invalidations.increment();
+        cache.synchronous().invalidateAll();
+        log.debug("Search result cache invalidated for index generation {}", event.generation());
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", cache.synchronous().estimatedSize());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("indexGeneration", indexGeneration.current());
+        return stats;
+    }
+}
@@ -0,0 +1,32 @@
+package com.undo.coursesearch.config;
+
+import com.undo.coursesearch.cache.SearchResultCache;
+import com.undo.coursesearch.service.IndexGeneration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public SearchResultCache searchResultCache(
+            IndexGeneration indexGeneration,
+            @Value("${app.search.cache.enabled:true}") boolean enabled,
+            @Value("${app.search.cache.max-size:10000}") long maxSize,
+            @Value("${app.search.cache.ttl:60s}") Duration ttl,
+            @Value("${app.search.query.date-granularity:1m}") Duration dateGranularity) {
+        return new SearchResultCache(indexGeneration, enabled, maxSize, ttl, dateGranularity);
+    }
+
+    // Facet-only responses are cheap to keep and only change when the index does, so they have no TTL
+    @Bean
+    public SearchResultCache facetSnapshotCache(
+            IndexGeneration indexGeneration,
+            @Value("${app.search.facets.snapshot-max-size:1000}") long maxSize,
+            @Value("${app.search.query.date-granularity:1m}") Duration dateGranularity) {
+        return new SearchResultCache(indexGeneration, true, maxSize, null, dateGranularity);
+    }
+}
@@ -1,63 +1,137 @@
 package com.undo.coursesearch.config;
 
-import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.json.JsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
-import co.elastic.clients.transport.rest_client.RestClientTransport;
-import org.apache.http.HttpHost;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.undo.coursesearch.metrics.TimedJsonpMapper;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.elasticsearch.client.NodeSelector;
 import org.elasticsearch.client.RestClient;
-import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.sniff.ElasticsearchNodesSniffer;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.elasticsearch.client.ClientConfiguration;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchClients;
 import org.springframework.data.elasticsearch.client.elc.ElasticsearchConfiguration;
 import org.springframework.data.elasticsearch.repository.config.EnableElasticsearchRepositories;
 
+import java.net.URI;
 import java.time.Duration;
+import java.util.Arrays;
 
+/**
+ * A single pooled {@link RestClient} backs the repositories, {@code ElasticsearchOperations},
+ * and the sync and async {@code ElasticsearchClient}s. Requests are spread round-robin
+ * over the nodes in {@code spring.elasticsearch.uris}, and nodes that fail are retried
+ * only after a back-off. With {@code app.elasticsearch.client.sniffer.enabled} the node
+ * list is refreshed from the cluster periodically and after every failure.
+ */
 @Configuration
 @EnableElasticsearchRepositories(basePackages = "com.undo.coursesearch.repository")
 public class ElasticsearchConfig extends ElasticsearchConfiguration {
 
     @Value("${spring.elasticsearch.uris:http://localhost:9200}")
-    private String elasticsearchUrl;
+    private String[] uris;
 
     @Value("${spring.elasticsearch.connection-timeout:10s}")
-    private String connectionTimeout;
+    private Duration connectionTimeout;
 
     @Value("${spring.elasticsearch.socket-timeout:30s}")
-    private String socketTimeout;
+    private Duration socketTimeout;
+
+    @Value("${app.elasticsearch.client.max-connections-per-route:50}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${app.elasticsearch.client.max-connections-total:200}")
+    private int maxConnectionsTotal;
+
+    @Value("${app.elasticsearch.client.keep-alive:60s}")
+    private Duration keepAlive;
+
+    @Value("${app.elasticsearch.client.compression:true}")
+    private boolean compression;
+
+    @Value("${app.elasticsearch.client.sniffer.enabled:false}")
+    private boolean snifferEnabled;
+
+    // Created up front so the client can report failures to the sniffer that is built after it
+    private final SniffOnFailureListener sniffOnFailureListener = new SniffOnFailureListener();
 
     @Override
     public ClientConfiguration clientConfiguration() {
-        return ClientConfiguration.builder()
-                .connectedTo(elasticsearchUrl.replace("http://", ""))
-                .withConnectTimeout(Duration.parse("PT" + connectionTimeout))
-                .withSocketTimeout(Duration.parse("PT" + socketTimeout))
+        String[] hosts = Arrays.stream(uris)
+                .map(String::trim)
+                .map(URI::create)
+                .map(uri -> uri.getHost() + ":" + (uri.getPort() != -1 ? uri.getPort() : 9200))
+                .toArray(String[]::new);
+
+        ClientConfiguration.MaybeSecureClientConfigurationBuilder builder =
+                ClientConfiguration.builder().connectedTo(hosts);
+        ClientConfiguration.TerminalClientConfigurationBuilder configuration = isSecure() ? builder.usingSsl() : builder;
+
+        return configuration
+                .withConnectTimeout(connectionTimeout)
+                .withSocketTimeout(socketTimeout)
+                .withClientConfigurer(ElasticsearchClients.ElasticsearchHttpClientConfigurationCallback.from(
+                        httpClient -> httpClient
+                                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                                .setMaxConnTotal(maxConnectionsTotal)
+                                // Idle connections are dropped before load balancers or firewalls silently do
+                                .setKeepAliveStrategy((response, context) -> keepAlive.toMillis())
+                                .setDefaultIOReactorConfig(IOReactorConfig.custom().setSoKeepAlive(true).build())))
+                .withClientConfigurer(ElasticsearchClients.ElasticsearchRestClientConfigurationCallback.from(
+                        restClient -> {
+                            // gzip request bodies and accept gzip responses
+                            restClient.setCompressionEnabled(compression);
+                            if (snifferEnabled) {
+                                restClient.setNodeSelector(NodeSelector.SKIP_DEDICATED_MASTERS);
+                                restClient.setFailureListener(sniffOnFailureListener);
+                            }
+                            return restClient;
+                        }))
                 .build();
     }
 
-    @Bean
-    public RestClient elasticsearchRestClient() {
-        RestClientBuilder builder = RestClient.builder(HttpHost.create(elasticsearchUrl));
+    // Same settings as the Spring Data default, with document deserialization timed for SearchMetrics
+    @Override
+    public JsonpMapper jsonpMapper() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .configure(SerializationFeature.INDENT_OUTPUT, false)
+                .setSerializationInclusion(JsonInclude.Include.ALWAYS);
+        return new TimedJsonpMapper(objectMapper);
+    }
 
-        builder.setRequestConfigCallback(requestConfigBuilder -> {
-            return requestConfigBuilder
-                    .setConnectTimeout((int) Duration.parse("PT" + connectionTimeout).toMillis())
-                    .setSocketTimeout((int) Duration.parse("PT" + socketTimeout).toMillis());
-        });
+    // Shares the transport, and so the connection pool, of the Spring Data client
+    @Bean
+    public ElasticsearchAsyncClient elasticsearchAsyncClient(ElasticsearchTransport elasticsearchTransport) {
+        return new ElasticsearchAsyncClient(elasticsearchTransport);
+    }
 
-        return builder.build();
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "app.elasticsearch.client.sniffer.enabled", havingValue = "true")
+    public Sniffer elasticsearchSniffer(
+            RestClient elasticsearchRestClient,
+            @Value("${app.elasticsearch.client.sniffer.interval:5m}") Duration interval,
+            @Value("${app.elasticsearch.client.sniffer.delay-after-failure:1m}") Duration delayAfterFailure) {
+        Sniffer sniffer = Sniffer.builder(elasticsearchRestClient)
+                .setNodesSniffer(new ElasticsearchNodesSniffer(elasticsearchRestClient,
+                        ElasticsearchNodesSniffer.DEFAULT_SNIFF_REQUEST_TIMEOUT,
+                        isSecure() ? ElasticsearchNodesSniffer.Scheme.HTTPS : ElasticsearchNodesSniffer.Scheme.HTTP))
+                .setSniffIntervalMillis((int) interval.toMillis())
+                .setSniffAfterFailureDelayMillis((int) delayAfterFailure.toMillis())
+                .build();
+        sniffOnFailureListener.setSniffer(sniffer);
+        return sniffer;
     }
 
-    @Bean
-    public ElasticsearchClient elasticsearchJavaClient() {
-        RestClient restClient = elasticsearchRestClient();
-        ElasticsearchTransport transport = new RestClientTransport(
-                restClient,
-                new JacksonJsonpMapper()
-        );
-        return new ElasticsearchClient(transport);
+    private boolean isSecure() {
+        return Arrays.stream(uris).anyMatch(uri -> uri.trim().startsWith("https://"));
     }
-}
\ No newline at end of file
+}
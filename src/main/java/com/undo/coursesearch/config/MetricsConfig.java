@@ -0,0 +1,41 @@
+package com.undo.coursesearch.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undo.coursesearch.metrics.SearchMetrics;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+@Configuration
+public class MetricsConfig {
+
+    // Replaces Boot's default JSON converter to time the serialization stage of search responses
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(
+            ObjectMapper objectMapper, SearchMetrics searchMetrics) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                    throws IOException, HttpMessageNotWritableException {
+                Tags tags = searchMetrics.currentRequestTags();
+                if (tags == null) {
+                    super.writeInternal(object, type, outputMessage);
+                    return;
+                }
+
+                long start = System.nanoTime();
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    searchMetrics.record(SearchMetrics.SERIALIZE, tags, System.nanoTime() - start);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package com.undo.coursesearch.config;
+
+import com.undo.coursesearch.document.EpochMillis;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * What the native image cannot discover by itself: data files read as resources, the
+ * warmup file's JSON model, and the date converter Spring Data instantiates
+ * reflectively. Not needed on the JVM, with or without AOT.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.Hints.class)
+public class NativeHintsConfig {
+
+    static class Hints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.resources()
+                    .registerPattern("sample-courses.json")
+                    .registerPattern("warmup-queries.json");
+            hints.reflection().registerType(
+                    TypeReference.of("com.undo.coursesearch.startup.SearchWarmup$WarmupQueries"),
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_METHODS,
+                    MemberCategory.DECLARED_FIELDS);
+            hints.reflection().registerType(EpochMillis.Converter.class,
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        }
+    }
+}
@@ -1,11 +1,7 @@
 package com.undo.coursesearch.document;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
-import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
-import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,19 +9,18 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.*;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Document(indexName = "courses")
+@Document(indexName = "courses", createIndex = false) // versioned indices are managed by CourseIndexManager
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class CourseDocument {
 
     @Id
+    @Field(type = FieldType.Keyword)
     private String id;
 
     @Field(type = FieldType.Text, analyzer = "standard")
@@ -40,23 +35,25 @@ public class CourseDocument {
     @Field(type = FieldType.Keyword)
     private CourseType type;
 
-    @Field(type = FieldType.Keyword)
+    // Only returned, never searched: doc values without an inverted index
+    @Field(type = FieldType.Keyword, index = false)
     private String gradeRange;
 
-    @Field(type = FieldType.Double)
-    private BigDecimal minAge;
+    @Field(type = FieldType.Short)
+    private Integer minAge;
 
-    @Field(type = FieldType.Double)
-    private BigDecimal maxAge;
+    @Field(type = FieldType.Short)
+    private Integer maxAge;
 
-    @Field(type = FieldType.Double)
-    private BigDecimal price;
+    // Stored as a long number of cents
+    @Field(type = FieldType.Scaled_Float, scalingFactor = 100)
+    private Double price;
 
-    @Field(type = FieldType.Date, format = {}, pattern = "yyyy-MM-dd'T'HH:mm:ss||yyyy-MM-dd'T'HH:mm:ss.SSS||strict_date_optional_time||epoch_millis")
-    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
-    @JsonSerialize(using = LocalDateTimeSerializer.class)
-    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
-    private LocalDateTime nextSessionDate;
+    // Epoch milliseconds (UTC); ISO date-times are still accepted on input
+    @Field(type = FieldType.Date, format = {}, pattern = "epoch_millis||strict_date_optional_time")
+    @ValueConverter(EpochMillis.Converter.class)
+    @JsonDeserialize(using = EpochMillis.Deserializer.class)
+    private Long nextSessionDate;
 
 //this one is for auto complete
     @Field(type = FieldType.Search_As_You_Type)
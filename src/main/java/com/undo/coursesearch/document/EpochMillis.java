@@ -0,0 +1,82 @@
+package com.undo.coursesearch.document;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import org.springframework.data.elasticsearch.core.mapping.PropertyValueConverter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Dates stored as epoch milliseconds (UTC). Reading also accepts the ISO local
+ * date-times written before the compact mapping, e.g. {@code "2025-09-03T13:54:46"},
+ * so documents in older index generations and existing JSON feeds keep working.
+ */
+public final class EpochMillis {
+
+    private EpochMillis() {
+    }
+
+    public static Long of(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toInstant(ZoneOffset.UTC).toEpochMilli() : null;
+    }
+
+    public static LocalDateTime toLocalDateTime(Long epochMillis) {
+        return epochMillis != null ? LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC) : null;
+    }
+
+    public static long parse(String value) {
+        String text = value.trim();
+        if (text.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(text);
+        }
+        // A zone suffix: Z, +hh:mm or -hh:mm after the time
+        if (text.endsWith("Z") || text.lastIndexOf('+') > 10 || text.lastIndexOf('-') > 10) {
+            return OffsetDateTime.parse(text).toInstant().toEpochMilli();
+        }
+        return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    // For the Elasticsearch client and the HTTP API
+    public static class Deserializer extends StdDeserializer<Long> {
+
+        public Deserializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                try {
+                    return parse(parser.getText());
+                } catch (RuntimeException e) {
+                    return (Long) context.handleWeirdStringValue(Long.class, parser.getText(),
+                            "not epoch milliseconds or an ISO date-time");
+                }
+            }
+            return parser.getValueAsLong();
+        }
+    }
+
+    // For Spring Data repositories, which do not use Jackson
+    public static class Converter implements PropertyValueConverter {
+
+        @Override
+        public Object write(Object value) {
+            return value;
+        }
+
+        @Override
+        public Object read(Object value) {
+            if (value instanceof Number number) {
+                return number.longValue();
+            }
+            return value instanceof String text ? parse(text) : value;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.undo.coursesearch.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.undo.coursesearch.document.CourseDocument;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * One entry of a batch of catalog changes. The version must increase with every
+ * change of a course (e.g. a sequence number or timestamp from the source system);
+ * changes that are not newer than the indexed course are dropped.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseChangeDto {
+
+    private Operation op;
+    private String id;
+    private Long version;
+
+    // The whole course, for upserts
+    private CourseDocument course;
+
+    // The changed fields only, for updates
+    private Map<String, Object> fields;
+
+    public enum Operation {
+        UPSERT("upsert"),
+        UPDATE("update"),
+        DELETE("delete");
+
+        private final String value;
+
+        Operation(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        @JsonCreator
+        public static Operation fromString(String value) {
+            for (Operation operation : Operation.values()) {
+                if (operation.value.equalsIgnoreCase(value)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation: " + value);
+        }
+    }
+}
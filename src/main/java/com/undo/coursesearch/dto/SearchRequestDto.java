@@ -1,11 +1,16 @@
 package com.undo.coursesearch.dto;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.undo.coursesearch.document.CourseDocument;
 import lombok.Data;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
 
 @Data
 public class SearchRequestDto {
@@ -25,6 +30,53 @@ public class SearchRequestDto {
     private Integer page = 0;
     private Integer size = 10;
 
+    // Attach category/type/price/age facet counts to the response
+    private boolean facets;
+
+    // "*" starts a cursor-mode search, later pages pass the nextCursor of the previous response
+    private String cursor;
+
+    // Total of an earlier page of the same search; later pages then skip counting hits
+    private Long knownTotal;
+
+    // Course fields to return; takes precedence over the view
+    private List<String> fields;
+    private View view = View.FULL;
+
+    public static final List<String> COURSE_FIELDS = List.of(
+            "id", "title", "description", "category", "type", "gradeRange",
+            "minAge", "maxAge", "price", "nextSessionDate");
+
+    public static final List<String> SUMMARY_FIELDS = List.of(
+            "id", "title", "price", "category", "nextSessionDate");
+
+    public enum View {
+        SUMMARY("summary"),
+        FULL("full");
+
+        private final String value;
+
+        View(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        @JsonCreator
+        public static View fromString(String value) {
+            if (value == null) return FULL;
+
+            for (View view : View.values()) {
+                if (view.value.equalsIgnoreCase(value)) {
+                    return view;
+                }
+            }
+            throw new IllegalArgumentException("Unknown view: " + value);
+        }
+    }
+
     public enum SortType {
         UPCOMING("upcoming"),
         PRICE_ASC("priceAsc"),
@@ -40,11 +92,12 @@ public class SearchRequestDto {
             return value;
         }
 
+        @JsonCreator
         public static SortType fromString(String value) {
             if (value == null) return UPCOMING;
 
             for (SortType sortType : SortType.values()) {
-                if (sortType.value.equalsIgnoreCase(value)) {
+                if (sortType.value.equalsIgnoreCase(value) || sortType.name().equalsIgnoreCase(value)) {
                     return sortType;
                 }
             }
@@ -68,4 +121,47 @@ public class SearchRequestDto {
     public boolean hasDateFilter() {
         return startDate != null;
     }
+
+    public boolean isFacetOnly() {
+        return facets && size != null && size == 0 && !hasTextSearch();
+    }
+
+    /**
+     * Course fields to fetch from {@code _source}, or {@code null} for all of them.
+     */
+    public List<String> projectedFields() {
+        if (fields != null && !fields.isEmpty()) {
+            return fields;
+        }
+        return view == View.SUMMARY ? SUMMARY_FIELDS : null;
+    }
+
+    /**
+     * {@code startDate} rounded down to a multiple of {@code granularity}, so that
+     * searches issued within the same interval share one query. A granularity under
+     * one millisecond, zero or negative leaves it as it is.
+     */
+    public LocalDateTime roundedStartDate(Duration granularity) {
+        if (startDate == null || granularity == null) {
+            return startDate;
+        }
+        long step = granularity.toMillis();
+        if (step <= 0) {
+            return startDate;
+        }
+        long millis = startDate.toInstant(ZoneOffset.UTC).toEpochMilli();
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(Math.floorDiv(millis, step) * step), ZoneOffset.UTC);
+    }
+
+    public boolean skipsTotalCount() {
+        return knownTotal != null && page != null && page > 0 && !hasCursor();
+    }
+
+    public boolean hasCursor() {
+        return cursor != null && !cursor.isEmpty();
+    }
+
+    public boolean isFirstCursorPage() {
+        return "*".equals(cursor);
+    }
 }
\ No newline at end of file
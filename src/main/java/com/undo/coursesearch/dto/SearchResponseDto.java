@@ -1,14 +1,16 @@
 package com.undo.coursesearch.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.document.EpochMillis;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -16,16 +18,47 @@ import java.util.List;
 @AllArgsConstructor
 public class SearchResponseDto {
 
+    public static final String TOTAL_EXACT = "eq";
+    public static final String TOTAL_LOWER_BOUND = "gte";
+
+    // Exact total, or a lower bound when counting stopped at app.search.total-hits.track-up-to
     private long total;
+
+    // "eq" if total is exact, "gte" if it is a lower bound
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String totalRelation;
+
     private int page;
     private int size;
     private int totalPages;
     private List<CourseDto> courses;
 
+    // Present in cursor mode while more results remain
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
+    // Bucket counts per facet (category, type, price, age) when requested with facets=true
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, List<FacetBucket>> facets;
+
+    // Set on entries of a batch search that failed individually
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetBucket {
+        private String key;
+        private long count;
+    }
+
+    // Fields left out by a projection (fields or view=summary) are omitted
     @Data
     @Builder
     @NoArgsConstructor
     @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public static class CourseDto {
         private String id;
         private String title;
@@ -33,9 +66,9 @@ public class SearchResponseDto {
         private String category;
         private CourseDocument.CourseType type;
         private String gradeRange;
-        private BigDecimal minAge;
-        private BigDecimal maxAge;
-        private BigDecimal price;
+        private Integer minAge;
+        private Integer maxAge;
+        private Double price;
 
         private LocalDateTime nextSessionDate;
 
@@ -50,7 +83,23 @@ public class SearchResponseDto {
                     .minAge(document.getMinAge())
                     .maxAge(document.getMaxAge())
                     .price(document.getPrice())
-                    .nextSessionDate(document.getNextSessionDate())
+                    .nextSessionDate(EpochMillis.toLocalDateTime(document.getNextSessionDate()))
+                    .build();
+        }
+
+        // Copy with only the given fields set, as if fetched with _source includes
+        public CourseDto project(List<String> fields) {
+            return CourseDto.builder()
+                    .id(fields.contains("id") ? id : null)
+                    .title(fields.contains("title") ? title : null)
+                    .description(fields.contains("description") ? description : null)
+                    .category(fields.contains("category") ? category : null)
+                    .type(fields.contains("type") ? type : null)
+                    .gradeRange(fields.contains("gradeRange") ? gradeRange : null)
+                    .minAge(fields.contains("minAge") ? minAge : null)
+                    .maxAge(fields.contains("maxAge") ? maxAge : null)
+                    .price(fields.contains("price") ? price : null)
+                    .nextSessionDate(fields.contains("nextSessionDate") ? nextSessionDate : null)
                     .build();
         }
     }
@@ -0,0 +1,15 @@
+package com.undo.coursesearch.engine;
+
+import com.undo.coursesearch.dto.SearchRequestDto;
+import com.undo.coursesearch.dto.SearchResponseDto;
+
+/**
+ * Executes page-mode course searches. Implementations share the semantics of the
+ * Elasticsearch query built by {@code CourseSearchService}: fuzzy text matching on
+ * title and description, exact category and type filters, range filters on age,
+ * price and session date, and sorting with an id tiebreaker.
+ */
+public interface CourseSearchEngine {
+
+    SearchResponseDto search(SearchRequestDto request);
+}
@@ -0,0 +1,374 @@
+package com.undo.coursesearch.engine;
+
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.document.EpochMillis;
+import com.undo.coursesearch.dto.SearchRequestDto;
+import com.undo.coursesearch.dto.SearchResponseDto;
+import com.undo.coursesearch.service.CourseIndexListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * In-process {@link CourseSearchEngine} over a copy of the courses index, selected
+ * with {@code app.search.engine.in-memory}:
+ * <ul>
+ *     <li>{@code off} - nothing is held in memory (default)</li>
+ *     <li>{@code fallback} - answers page-mode searches while Elasticsearch is failing</li>
+ *     <li>{@code primary} - answers all page-mode searches; meant for small catalogs</li>
+ * </ul>
+ *
+ * Searches run against an immutable snapshot: an inverted index of the analyzed
+ * title and description terms, bitsets per category and type, columnar arrays for
+ * the range fields, and the document order of every sort type. The snapshot is
+ * rebuilt by the first search after the courses change.
+ */
+@Slf4j
+@Component
+public class InMemorySearchEngine implements CourseSearchEngine, CourseIndexListener {
+
+    public enum Mode {
+        OFF,
+        FALLBACK,
+        PRIMARY
+    }
+
+    private final Mode mode;
+    private final Duration dateGranularity;
+    private final Map<String, CourseDocument> documents = new LinkedHashMap<>();
+
+    private volatile Snapshot snapshot = Snapshot.build(List.of());
+    private volatile boolean dirty;
+    private volatile boolean ready;
+
+    public InMemorySearchEngine(@Value("${app.search.engine.in-memory:off}") Mode mode,
+                                @Value("${app.search.query.date-granularity:1m}") Duration dateGranularity) {
+        this.mode = mode;
+        this.dateGranularity = dateGranularity;
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public boolean isReady() {
+        return mode != Mode.OFF && ready;
+    }
+
+    /**
+     * Cursor pagination and facets always need Elasticsearch.
+     */
+    public boolean supports(SearchRequestDto request) {
+        return !request.hasCursor() && !request.isFacets();
+    }
+
+    // True if the request should skip Elasticsearch altogether
+    public boolean serves(SearchRequestDto request) {
+        return mode == Mode.PRIMARY && isReady() && supports(request);
+    }
+
+    // True if the request can be answered here when Elasticsearch fails
+    public boolean canFallBack(SearchRequestDto request) {
+        return isReady() && supports(request);
+    }
+
+    @Override
+    public SearchResponseDto search(SearchRequestDto request) {
+        return current().search(request, dateGranularity);
+    }
+
+    @Override
+    public void index(Collection<CourseDocument> courses) {
+        if (mode == Mode.OFF || courses.isEmpty()) {
+            return;
+        }
+        synchronized (documents) {
+            courses.forEach(course -> documents.put(course.getId(), course));
+            dirty = true;
+        }
+    }
+
+    @Override
+    public void remove(Collection<String> ids) {
+        if (mode == Mode.OFF || ids.isEmpty()) {
+            return;
+        }
+        synchronized (documents) {
+            ids.forEach(documents::remove);
+            dirty = true;
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (documents) {
+            ready = false;
+            documents.clear();
+            dirty = true;
+        }
+    }
+
+    @Override
+    public void markReady() {
+        if (mode != Mode.OFF) {
+            ready = true;
+            log.info("In-memory search engine ready with {} courses ({} mode)", size(), mode);
+        }
+    }
+
+    public int size() {
+        synchronized (documents) {
+            return documents.size();
+        }
+    }
+
+    private Snapshot current() {
+        if (dirty) {
+            synchronized (documents) {
+                if (dirty) {
+                    snapshot = Snapshot.build(documents.values());
+                    dirty = false;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Splits text like the standard analyzer for the Latin-script text in the catalog:
+     * on anything that is not a letter or digit, then lowercased.
+     */
+    static List<String> analyze(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // fuzziness: AUTO
+    static int maxEdits(String term) {
+        int length = term.codePointCount(0, term.length());
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Edit distance counting insertions, deletions, substitutions and transpositions
+     * of adjacent characters, as Lucene's fuzzy query does. Gives up with
+     * {@code maxEdits + 1} once the distance is known to exceed {@code maxEdits}.
+     */
+    static int editDistance(String a, String b, int maxEdits) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) {
+            return maxEdits + 1;
+        }
+
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMinimum = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance = Math.min(distance, previous2[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMinimum = Math.min(rowMinimum, distance);
+            }
+            if (rowMinimum > maxEdits) {
+                return maxEdits + 1;
+            }
+
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    private static final class Snapshot {
+
+        private final CourseDocument[] courses;
+        private final double[] price;
+        private final double[] minAge;
+        private final double[] maxAge;
+        private final long[] nextSessionDate;
+        private final BitSet hasNextSessionDate;
+
+        private final Map<String, BitSet> categories = new HashMap<>();
+        private final Map<CourseDocument.CourseType, BitSet> types = new EnumMap<>(CourseDocument.CourseType.class);
+        private final Map<String, BitSet> postings = new HashMap<>();
+        private final Map<Integer, List<String>> termsByLength = new HashMap<>();
+        private final Map<SearchRequestDto.SortType, int[]> sortOrders = new EnumMap<>(SearchRequestDto.SortType.class);
+
+        private Snapshot(Collection<CourseDocument> documents) {
+            courses = documents.toArray(new CourseDocument[0]);
+            int size = courses.length;
+            price = new double[size];
+            minAge = new double[size];
+            maxAge = new double[size];
+            nextSessionDate = new long[size];
+            hasNextSessionDate = new BitSet(size);
+
+            for (int doc = 0; doc < size; doc++) {
+                CourseDocument course = courses[doc];
+
+                // NaN never satisfies a range comparison, like a missing field in Elasticsearch
+                price[doc] = course.getPrice() != null ? course.getPrice().doubleValue() : Double.NaN;
+                minAge[doc] = course.getMinAge() != null ? course.getMinAge().doubleValue() : Double.NaN;
+                maxAge[doc] = course.getMaxAge() != null ? course.getMaxAge().doubleValue() : Double.NaN;
+                if (course.getNextSessionDate() != null) {
+                    nextSessionDate[doc] = course.getNextSessionDate();
+                    hasNextSessionDate.set(doc);
+                }
+
+                if (course.getCategory() != null) {
+                    categories.computeIfAbsent(course.getCategory(), k -> new BitSet(size)).set(doc);
+                }
+                if (course.getType() != null) {
+                    types.computeIfAbsent(course.getType(), k -> new BitSet(size)).set(doc);
+                }
+
+                for (String term : analyze(course.getTitle())) {
+                    postings.computeIfAbsent(term, k -> new BitSet(size)).set(doc);
+                }
+                for (String term : analyze(course.getDescription())) {
+                    postings.computeIfAbsent(term, k -> new BitSet(size)).set(doc);
+                }
+            }
+
+            for (String term : postings.keySet()) {
+                termsByLength.computeIfAbsent(term.length(), k -> new ArrayList<>()).add(term);
+            }
+
+            // Missing values sort last in both directions, then by id, as in Elasticsearch
+            Comparator<Integer> byId = Comparator.comparing(doc -> courses[doc].getId(),
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            sortOrders.put(SearchRequestDto.SortType.UPCOMING, order(Comparator
+                    .<Integer, Boolean>comparing(doc -> !hasNextSessionDate.get(doc))
+                    .thenComparingLong(doc -> nextSessionDate[doc])
+                    .thenComparing(byId)));
+            sortOrders.put(SearchRequestDto.SortType.PRICE_ASC, order(Comparator
+                    .<Integer, Boolean>comparing(doc -> Double.isNaN(price[doc]))
+                    .thenComparingDouble(doc -> price[doc])
+                    .thenComparing(byId)));
+            sortOrders.put(SearchRequestDto.SortType.PRICE_DESC, order(Comparator
+                    .<Integer, Boolean>comparing(doc -> Double.isNaN(price[doc]))
+                    .thenComparing(Comparator.<Integer>comparingDouble(doc -> price[doc]).reversed())
+                    .thenComparing(byId)));
+        }
+
+        static Snapshot build(Collection<CourseDocument> documents) {
+            return new Snapshot(documents);
+        }
+
+        SearchResponseDto search(SearchRequestDto request, Duration dateGranularity) {
+            BitSet matches = matches(request, dateGranularity);
+            int total = matches.cardinality();
+            int size = request.getSize();
+            int from = request.getPage() * size;
+            List<String> fields = request.projectedFields();
+
+            List<SearchResponseDto.CourseDto> page = new ArrayList<>(Math.min(size, total));
+            int position = 0;
+            for (int doc : sortOrders.get(request.getSort())) {
+                if (page.size() == size) {
+                    break;
+                }
+                if (matches.get(doc) && position++ >= from) {
+                    SearchResponseDto.CourseDto course = SearchResponseDto.CourseDto.fromDocument(courses[doc]);
+                    page.add(fields != null ? course.project(fields) : course);
+                }
+            }
+
+            return SearchResponseDto.builder()
+                    .total(total)
+                    .totalRelation(SearchResponseDto.TOTAL_EXACT)
+                    .page(request.getPage())
+                    .size(size)
+                    .totalPages(size > 0 ? (int) Math.ceil((double) total / size) : 0)
+                    .courses(page)
+                    .build();
+        }
+
+        private BitSet matches(SearchRequestDto request, Duration dateGranularity) {
+            BitSet matches = new BitSet(courses.length);
+            matches.set(0, courses.length);
+
+            // multi_match on title and description, any term, fuzziness AUTO
+            if (request.hasTextSearch()) {
+                BitSet text = new BitSet(courses.length);
+                for (String term : analyze(request.getQ())) {
+                    int maxEdits = maxEdits(term);
+                    for (int length = term.length() - maxEdits; length <= term.length() + maxEdits; length++) {
+                        for (String candidate : termsByLength.getOrDefault(length, List.of())) {
+                            if (editDistance(term, candidate, maxEdits) <= maxEdits) {
+                                text.or(postings.get(candidate));
+                            }
+                        }
+                    }
+                }
+                matches.and(text);
+            }
+
+            if (request.getCategory() != null && !request.getCategory().isEmpty()) {
+                matches.and(categories.getOrDefault(request.getCategory(), new BitSet()));
+            }
+            if (request.getType() != null) {
+                matches.and(types.getOrDefault(request.getType(), new BitSet()));
+            }
+
+            double minAgeFilter = request.getMinAge() != null ? request.getMinAge().doubleValue() : Double.NaN;
+            double maxAgeFilter = request.getMaxAge() != null ? request.getMaxAge().doubleValue() : Double.NaN;
+            double minPriceFilter = request.getMinPrice() != null ? request.getMinPrice().doubleValue() : Double.NaN;
+            double maxPriceFilter = request.getMaxPrice() != null ? request.getMaxPrice().doubleValue() : Double.NaN;
+            long startDate = request.hasDateFilter() ? EpochMillis.of(request.roundedStartDate(dateGranularity)) : 0;
+
+            for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                // The course's age range must overlap the requested one
+                boolean match = (Double.isNaN(minAgeFilter) || maxAge[doc] >= minAgeFilter)
+                        && (Double.isNaN(maxAgeFilter) || minAge[doc] <= maxAgeFilter)
+                        && (Double.isNaN(minPriceFilter) || price[doc] >= minPriceFilter)
+                        && (Double.isNaN(maxPriceFilter) || price[doc] <= maxPriceFilter)
+                        && (!request.hasDateFilter()
+                            || (hasNextSessionDate.get(doc) && nextSessionDate[doc] >= startDate));
+                if (!match) {
+                    matches.clear(doc);
+                }
+            }
+            return matches;
+        }
+
+        private int[] order(Comparator<Integer> comparator) {
+            return IntStream.range(0, courses.length).boxed()
+                    .sorted(comparator)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+}
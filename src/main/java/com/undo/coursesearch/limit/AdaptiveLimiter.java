@@ -0,0 +1,111 @@
+package com.undo.coursesearch.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts with AIMD: every request that completes in time
+ * while the limit is in use raises it by one, and every request that is dropped,
+ * or slower than the latency threshold, multiplies it by the backoff ratio.
+ *
+ * Requests over the limit are rejected immediately instead of queuing, so a slow
+ * backend sheds load rather than accumulating waiting threads.
+ */
+public class AdaptiveLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit,
+                           long latencyThreshold, TimeUnit unit, double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = unit.toNanos(latencyThreshold);
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * A permit for one request, or {@code null} if the limit is reached.
+     */
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1, System.nanoTime());
+            }
+        }
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long latencyNanos, int inFlightAtStart, boolean dropped) {
+        if (dropped || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, Math.floor(limit * backoffRatio));
+        } else if (inFlightAtStart * 2 >= limit) {
+            // Only grow while the limit is actually the constraint
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    public final class Permit {
+
+        private final int inFlightAtStart;
+        private final long start;
+        private boolean released;
+
+        private Permit(int inFlightAtStart, long start) {
+            this.inFlightAtStart = inFlightAtStart;
+            this.start = start;
+        }
+
+        // The request completed; its latency feeds the limit
+        public void success() {
+            release(Outcome.SUCCESS);
+        }
+
+        // The backend was overloaded (rejection, timeout); the limit backs off
+        public void dropped() {
+            release(Outcome.DROPPED);
+        }
+
+        // The request failed for reasons unrelated to load; the limit is left alone
+        public void ignore() {
+            release(Outcome.IGNORED);
+        }
+
+        private synchronized void release(Outcome outcome) {
+            if (released) {
+                return;
+            }
+            released = true;
+            inFlight.decrementAndGet();
+            if (outcome != Outcome.IGNORED) {
+                onSample(System.nanoTime() - start, inFlightAtStart, outcome == Outcome.DROPPED);
+            }
+        }
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        DROPPED,
+        IGNORED
+    }
+}
@@ -0,0 +1,208 @@
+package com.undo.coursesearch.limit;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import com.undo.coursesearch.metrics.SearchMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.ResponseException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Separate adaptive concurrency limits for the kinds of work sent to Elasticsearch,
+ * so that a burst of searches cannot starve suggestions, and a reindex cannot take
+ * capacity from either. A request over its bulkhead's limit fails fast with
+ * {@link OverloadedException} instead of queuing in the HTTP client's connection pool.
+ *
+ * Each limit grows while requests complete within {@code app.elasticsearch.limits.latency-threshold}
+ * and backs off when they are slower, time out, or are rejected by Elasticsearch
+ * ({@code 429}, {@code 503}, {@code 504}). Published as the {@code search.limiter.limit}
+ * and {@code search.limiter.in_flight} gauges and the {@code search.limiter.rejected}
+ * counter, tagged by bulkhead.
+ */
+@Slf4j
+@Component
+public class ElasticsearchBulkheads {
+
+    public enum Bulkhead {
+        SEARCH("search"),
+        SUGGEST("suggest"),
+        ADMIN("admin"),
+        EXPORT("export");
+
+        private final String value;
+
+        Bulkhead(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    private final Map<Bulkhead, AdaptiveLimiter> limiters = new EnumMap<>(Bulkhead.class);
+    private final Map<Bulkhead, Counter> rejections = new EnumMap<>(Bulkhead.class);
+    private final Duration retryAfter;
+
+    public ElasticsearchBulkheads(
+            MeterRegistry meterRegistry,
+            @Value("${app.elasticsearch.limits.latency-threshold:500ms}") Duration latencyThreshold,
+            @Value("${app.elasticsearch.limits.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${app.elasticsearch.limits.retry-after:1s}") Duration retryAfter,
+            @Value("${app.elasticsearch.limits.search.initial:20}") int searchInitial,
+            @Value("${app.elasticsearch.limits.search.min:4}") int searchMin,
+            @Value("${app.elasticsearch.limits.search.max:200}") int searchMax,
+            @Value("${app.elasticsearch.limits.suggest.initial:10}") int suggestInitial,
+            @Value("${app.elasticsearch.limits.suggest.min:2}") int suggestMin,
+            @Value("${app.elasticsearch.limits.suggest.max:100}") int suggestMax,
+            @Value("${app.elasticsearch.limits.admin.initial:2}") int adminInitial,
+            @Value("${app.elasticsearch.limits.admin.min:2}") int adminMin,
+            @Value("${app.elasticsearch.limits.admin.max:2}") int adminMax,
+            @Value("${app.elasticsearch.limits.export.initial:4}") int exportInitial,
+            @Value("${app.elasticsearch.limits.export.min:4}") int exportMin,
+            @Value("${app.elasticsearch.limits.export.max:4}") int exportMax) {
+        this.retryAfter = retryAfter;
+        long threshold = latencyThreshold.toNanos();
+        limiters.put(Bulkhead.SEARCH, new AdaptiveLimiter(searchInitial, searchMin, searchMax,
+                threshold, TimeUnit.NANOSECONDS, backoffRatio));
+        limiters.put(Bulkhead.SUGGEST, new AdaptiveLimiter(suggestInitial, suggestMin, suggestMax,
+                threshold, TimeUnit.NANOSECONDS, backoffRatio));
+        limiters.put(Bulkhead.ADMIN, new AdaptiveLimiter(adminInitial, adminMin, adminMax,
+                threshold, TimeUnit.NANOSECONDS, backoffRatio));
+        limiters.put(Bulkhead.EXPORT, new AdaptiveLimiter(exportInitial, exportMin, exportMax,
+                threshold, TimeUnit.NANOSECONDS, backoffRatio));
+
+        limiters.forEach((bulkhead, limiter) -> {
+            Gauge.builder("search.limiter.limit", limiter, AdaptiveLimiter::limit)
+                    .description("Current concurrency limit towards Elasticsearch")
+                    .tag("bulkhead", bulkhead.getValue())
+                    .register(meterRegistry);
+            Gauge.builder("search.limiter.in_flight", limiter, AdaptiveLimiter::inFlight)
+                    .description("Requests currently in flight to Elasticsearch")
+                    .tag("bulkhead", bulkhead.getValue())
+                    .register(meterRegistry);
+            rejections.put(bulkhead, Counter.builder("search.limiter.rejected")
+                    .description("Requests shed because the concurrency limit was reached")
+                    .tag("bulkhead", bulkhead.getValue())
+                    .register(meterRegistry));
+        });
+    }
+
+    /**
+     * Runs a blocking Elasticsearch call within the bulkhead's limit.
+     */
+    public <T> T call(Bulkhead bulkhead, SearchMetrics.ElasticsearchCall<T> call) throws IOException {
+        AdaptiveLimiter.Permit permit = acquire(bulkhead);
+        try {
+            T result = call.execute();
+            permit.success();
+            return result;
+        } catch (IOException e) {
+            OverloadedException overloaded = release(bulkhead, permit, e);
+            if (overloaded != null) {
+                throw overloaded;
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            OverloadedException overloaded = release(bulkhead, permit, e);
+            throw overloaded != null ? overloaded : e;
+        }
+    }
+
+    /**
+     * Runs an async Elasticsearch call within the bulkhead's limit. A rejection is
+     * returned as a failed future, like any other error of the call.
+     */
+    public <T> CompletableFuture<T> callAsync(Bulkhead bulkhead, Supplier<CompletableFuture<T>> call) {
+        AdaptiveLimiter.Permit permit;
+        try {
+            permit = acquire(bulkhead);
+        } catch (OverloadedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            permit.ignore();
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.handle((result, error) -> {
+            if (error == null) {
+                permit.success();
+                return result;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            OverloadedException overloaded = release(bulkhead, permit, cause);
+            throw new CompletionException(overloaded != null ? overloaded : cause);
+        });
+    }
+
+    /**
+     * Takes a slot of the bulkhead for work that spans many Elasticsearch calls, such
+     * as an export, and keeps it until the caller releases the permit. Release it with
+     * {@link AdaptiveLimiter.Permit#ignore()}: how long the slot was held says nothing
+     * about Elasticsearch latency.
+     */
+    public AdaptiveLimiter.Permit hold(Bulkhead bulkhead) {
+        return acquire(bulkhead);
+    }
+
+    private AdaptiveLimiter.Permit acquire(Bulkhead bulkhead) {
+        AdaptiveLimiter.Permit permit = limiters.get(bulkhead).tryAcquire();
+        if (permit == null) {
+            rejections.get(bulkhead).increment();
+            throw new OverloadedException(bulkhead, retryAfter, null);
+        }
+        return permit;
+    }
+
+    // Releases the permit according to the failure; returns the translation of an Elasticsearch rejection
+    private OverloadedException release(Bulkhead bulkhead, AdaptiveLimiter.Permit permit, Throwable error) {
+        int status = status(error);
+        if (status == 429 || status == 503 || status == 504) {
+            permit.dropped();
+            log.warn("Elasticsearch rejected a {} request with status {}", bulkhead.getValue(), status);
+            return new OverloadedException(bulkhead, retryAfter, error);
+        }
+        if (isTimeout(error)) {
+            permit.dropped();
+        } else {
+            permit.ignore();
+        }
+        return null;
+    }
+
+    // Status of an error response from either the Java API client or the low-level REST client
+    private static int status(Throwable error) {
+        if (error instanceof ElasticsearchException elasticsearchException) {
+            return elasticsearchException.status();
+        }
+        if (error instanceof ResponseException responseException) {
+            return responseException.getResponse().getStatusLine().getStatusCode();
+        }
+        return 0;
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        return error instanceof SocketTimeoutException
+                || error instanceof ConnectException
+                || error instanceof TimeoutException;
+    }
+}
@@ -0,0 +1,28 @@
+package com.undo.coursesearch.limit;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a bulkhead is at its concurrency limit, or when Elasticsearch itself
+ * rejects a request for lack of capacity. Answered with {@code 503} and a
+ * {@code Retry-After} header.
+ */
+public class OverloadedException extends RuntimeException {
+
+    private final ElasticsearchBulkheads.Bulkhead bulkhead;
+    private final Duration retryAfter;
+
+    public OverloadedException(ElasticsearchBulkheads.Bulkhead bulkhead, Duration retryAfter, Throwable cause) {
+        super("Too many concurrent " + bulkhead.getValue() + " requests, retry later", cause);
+        this.bulkhead = bulkhead;
+        this.retryAfter = retryAfter;
+    }
+
+    public ElasticsearchBulkheads.Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
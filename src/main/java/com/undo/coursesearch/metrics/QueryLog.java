@@ -0,0 +1,146 @@
+package com.undo.coursesearch.metrics;
+
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import co.elastic.clients.elasticsearch.core.search.TotalHits;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpSerializable;
+import co.elastic.clients.json.JsonpUtils;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Structured log of Elasticsearch queries on the {@code query-log} logger, one JSON
+ * object per line: every query slower than {@code app.search.query-log.slow-threshold},
+ * and a {@code sample-rate} fraction of the others. Each entry has the search shape
+ * tags, the client-observed latency, Elasticsearch's {@code took}, the hit counts and
+ * the rendered query body, e.g.
+ * <pre>
+ * {"kind":"slow","operation":"search","sort":"upcoming",...,"elapsedMs":812.4,"tookMs":790,
+ *  "hits":10,"totalHits":10000,"totalRelation":"gte","query":{"query":{...},"size":10}}
+ * </pre>
+ * An {@code _msearch} is logged as one entry per search in it, each with the batch's
+ * latency and its position ({@code "batchItem":2,"batchSize":5}). The query is
+ * rendered with the client's {@link JsonpMapper}, and only for entries that are
+ * written. {@code logback-spring.xml}
+ * routes the logger through a bounded asynchronous appender that drops entries
+ * rather than block a search thread when it falls behind.
+ */
+@Component
+public class QueryLog {
+
+    public static final String LOGGER_NAME = "query-log";
+
+    private static final Logger log = LoggerFactory.getLogger(LOGGER_NAME);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonpMapper jsonpMapper;
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+    private final double sampleRate;
+
+    public QueryLog(JsonpMapper jsonpMapper,
+                    @Value("${app.search.query-log.enabled:true}") boolean enabled,
+                    @Value("${app.search.query-log.slow-threshold:500ms}") Duration slowThreshold,
+                    @Value("${app.search.query-log.sample-rate:0.001}") double sampleRate) {
+        this.jsonpMapper = jsonpMapper;
+        this.enabled = enabled;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @param response the Elasticsearch response, or {@code null} if the call failed
+     */
+    public void record(Tags tags, JsonpSerializable request, Object response, long nanos) {
+        String kind = classify(nanos);
+        if (kind != null && log.isInfoEnabled()) {
+            log.info(render(kind, tags, request, response, nanos));
+        }
+    }
+
+    /**
+     * @param tags     the tags of each search in the batch
+     * @param response the Elasticsearch response, or {@code null} if the call failed
+     */
+    public void recordBatch(List<Tags> tags, MsearchRequest request, MsearchResponse<?> response, long nanos) {
+        String kind = classify(nanos);
+        if (kind == null || !log.isInfoEnabled()) {
+            return;
+        }
+        int size = request.searches().size();
+        for (int i = 0; i < size; i++) {
+            MultiSearchResponseItem<?> item = response != null && i < response.responses().size()
+                    ? response.responses().get(i) : null;
+            log.info(render(kind, tags.get(i), request.searches().get(i).body(),
+                    item != null && item.isResult() ? item.result() : null, nanos, i, size));
+        }
+    }
+
+    // "slow", "sampled", or null when the query is not logged
+    String classify(long nanos) {
+        if (!enabled) {
+            return null;
+        }
+        if (nanos >= slowThresholdNanos) {
+            return "slow";
+        }
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate ? "sampled" : null;
+    }
+
+    String render(String kind, Tags tags, JsonpSerializable request, Object response, long nanos) {
+        return render(kind, tags, request, response, nanos, 0, 0);
+    }
+
+    // batchSize 0 for a single search
+    String render(String kind, Tags tags, JsonpSerializable request, Object response, long nanos,
+                  int batchItem, int batchSize) {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("kind", kind);
+            for (Tag tag : tags) {
+                generator.writeStringField(tag.getKey(), tag.getValue());
+            }
+            if (batchSize > 0) {
+                generator.writeNumberField("batchItem", batchItem);
+                generator.writeNumberField("batchSize", batchSize);
+            }
+            generator.writeNumberField("elapsedMs", Math.round(nanos / 100_000.0) / 10.0);
+            if (response instanceof ResponseBody<?> body) {
+                generator.writeNumberField("tookMs", body.took());
+                generator.writeNumberField("hits", body.hits().hits().size());
+                TotalHits total = body.hits().total();
+                if (total != null) {
+                    generator.writeNumberField("totalHits", total.value());
+                    generator.writeStringField("totalRelation", total.relation().jsonValue());
+                }
+            } else if (response == null) {
+                generator.writeBooleanField("failed", true);
+            }
+            if (request != null) {
+                generator.writeFieldName("query");
+                generator.writeRawValue(JsonpUtils.toJsonString(request, jsonpMapper));
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            // Writing to a StringWriter does not fail
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+}
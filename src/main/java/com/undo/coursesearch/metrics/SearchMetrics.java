@@ -0,0 +1,235 @@
+package com.undo.coursesearch.metrics;
+
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import co.elastic.clients.json.JsonpSerializable;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.undo.coursesearch.dto.SearchRequestDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Per-stage latency of the search and suggest pipelines, published as the
+ * {@code search.stage} timer with a {@code stage} tag:
+ * <ul>
+ *     <li>{@code build_query} - building the Elasticsearch request</li>
+ *     <li>{@code elasticsearch} - client-observed round trip, including transport
+ *     and response parsing</li>
+ *     <li>{@code deserialize} - the part of the round trip spent deserializing
+ *     documents (blocking and virtual-thread modes only)</li>
+ *     <li>{@code map} - converting documents to DTOs</li>
+ *     <li>{@code serialize} - writing the HTTP response body</li>
+ *     <li>{@code local_index} - suggestions served from the in-process index</li>
+ *     <li>{@code passthrough} - streaming raw hits into the response ({@code /api/search/raw})</li>
+ *     <li>{@code in_memory} - searches answered by the in-memory engine</li>
+ * </ul>
+ * Elasticsearch's own {@code took} is published as {@code search.elasticsearch.took}
+ * with the same tags, so the difference to the {@code elasticsearch} stage is the
+ * transport overhead. Every meter is tagged by operation, sort and the filters present.
+ * Round trips are also offered to the {@link QueryLog}.
+ */
+@Component
+public class SearchMetrics {
+
+    public static final String STAGE_TIMER = "search.stage";
+    public static final String TOOK_TIMER = "search.elasticsearch.took";
+
+    public static final String BUILD_QUERY = "build_query";
+    public static final String ELASTICSEARCH = "elasticsearch";
+    public static final String DESERIALIZE = "deserialize";
+    public static final String MAP = "map";
+    public static final String SERIALIZE = "serialize";
+    public static final String LOCAL_INDEX = "local_index";
+    public static final String PASSTHROUGH = "passthrough";
+    public static final String IN_MEMORY = "in_memory";
+
+    private static final String TAGS_ATTRIBUTE = SearchMetrics.class.getName() + ".tags";
+
+    private final MeterRegistry meterRegistry;
+    private final QueryLog queryLog;
+
+    // Registered once per stage and tag set; tags come from a small fixed vocabulary, so both stay bounded
+    private final Map<TimerKey, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<Tags, Timer> tookTimers = new ConcurrentHashMap<>();
+
+    private record TimerKey(String stage, Tags tags) {
+    }
+
+    @Autowired
+    public SearchMetrics(MeterRegistry meterRegistry, QueryLog queryLog) {
+        this.meterRegistry = meterRegistry;
+        this.queryLog = queryLog;
+    }
+
+    // Without a query log, for tests and tools
+    public SearchMetrics(MeterRegistry meterRegistry) {
+        this(meterRegistry, new QueryLog(new JacksonJsonpMapper(), false, Duration.ZERO, 0));
+    }
+
+    @FunctionalInterface
+    public interface ElasticsearchCall<T> {
+        T execute() throws IOException;
+    }
+
+    public Tags searchTags(SearchRequestDto request) {
+        return Tags.of(
+                "operation", "search",
+                "sort", request.getSort().getValue(),
+                "text", String.valueOf(request.hasTextSearch()),
+                "price", String.valueOf(request.hasPriceFilter()),
+                "age", String.valueOf(request.hasAgeFilter()),
+                "date", String.valueOf(request.hasDateFilter()));
+    }
+
+    // Same tag keys as searchTags, as registries like Prometheus require a fixed set per meter
+    public Tags suggestTags() {
+        return Tags.of(
+                "operation", "suggest",
+                "sort", "none",
+                "text", "true",
+                "price", "false",
+                "age", "false",
+                "date", "false");
+    }
+
+    // Export pages are far larger than search pages, so they are kept out of the search timings
+    public Tags exportTags(SearchRequestDto request) {
+        return searchTags(request).and("operation", "export");
+    }
+
+    public <T> T time(String stage, Tags tags, Supplier<T> task) {
+        long start = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            record(stage, tags, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Times a blocking Elasticsearch call as the {@code elasticsearch} stage, with the
+     * document deserialization inside it as {@code deserialize}, and records the
+     * server-side {@code took} of search responses.
+     *
+     * @param request the request {@code call} sends, for the query log
+     */
+    public <T> T timeRoundTrip(Tags tags, JsonpSerializable request, ElasticsearchCall<T> call) throws IOException {
+        long start = System.nanoTime();
+        TimedJsonpMapper.startTiming();
+        T response = null;
+        try {
+            response = call.execute();
+            if (response instanceof ResponseBody<?> body) {
+                recordTook(tags, body.took());
+            }
+            return response;
+        } finally {
+            long deserialization = TimedJsonpMapper.stopTiming();
+            long elapsed = System.nanoTime() - start;
+            record(ELASTICSEARCH, tags, elapsed);
+            record(DESERIALIZE, tags, deserialization);
+            queryLog.record(tags, request, response, elapsed);
+        }
+    }
+
+    /**
+     * Async variant of {@link #timeRoundTrip}. The response is parsed on the client's
+     * I/O thread, so no {@code deserialize} stage is recorded.
+     */
+    public <T> CompletableFuture<T> timeRoundTripAsync(Tags tags, JsonpSerializable request,
+                                                       Supplier<CompletableFuture<T>> call) {
+        long start = System.nanoTime();
+        return call.get().whenComplete((response, error) -> {
+            long elapsed = System.nanoTime() - start;
+            record(ELASTICSEARCH, tags, elapsed);
+            if (response instanceof ResponseBody<?> body) {
+                recordTook(tags, body.took());
+            }
+            queryLog.record(tags, request, response, elapsed);
+        });
+    }
+
+    /**
+     * Runs a blocking {@code _msearch} and offers it to the query log, one entry per
+     * search. Batches are not timed as a stage: their latency depends on their size.
+     *
+     * @param tags the tags of each search in {@code request}
+     */
+    public <T> MsearchResponse<T> timeBatch(List<Tags> tags, MsearchRequest request,
+                                            ElasticsearchCall<MsearchResponse<T>> call) throws IOException {
+        long start = System.nanoTime();
+        MsearchResponse<T> response = null;
+        try {
+            response = call.execute();
+            return response;
+        } finally {
+            queryLog.recordBatch(tags, request, response, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Async variant of {@link #timeBatch}.
+     */
+    public <T> CompletableFuture<MsearchResponse<T>> timeBatchAsync(List<Tags> tags, MsearchRequest request,
+                                                                    Supplier<CompletableFuture<MsearchResponse<T>>> call) {
+        long start = System.nanoTime();
+        return call.get().whenComplete((response, error) ->
+                queryLog.recordBatch(tags, request, response, System.nanoTime() - start));
+    }
+
+    /**
+     * Offers a round trip timed elsewhere, e.g. through the low-level client, to the
+     * query log.
+     */
+    public void logQuery(Tags tags, JsonpSerializable request, Object response, long nanos) {
+        queryLog.record(tags, request, response, nanos);
+    }
+
+    public void record(String stage, Tags tags, long nanos) {
+        stageTimers.computeIfAbsent(new TimerKey(stage, tags), key -> Timer.builder(STAGE_TIMER)
+                        .description("Latency of a search pipeline stage")
+                        .tags(key.tags())
+                        .tag("stage", key.stage())
+                        .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTook(Tags tags, long tookMillis) {
+        tookTimers.computeIfAbsent(tags, key -> Timer.builder(TOOK_TIMER)
+                        .description("Server-side search time reported by Elasticsearch")
+                        .tags(key)
+                        .register(meterRegistry))
+                .record(tookMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Remembers the tags of the current HTTP request, so that the response body
+     * serialization can be attributed to the same search shape.
+     */
+    public void bindToCurrentRequest(Tags tags) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(TAGS_ATTRIBUTE, tags, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    public Tags currentRequestTags() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null ? (Tags) attributes.getAttribute(TAGS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) : null;
+    }
+}
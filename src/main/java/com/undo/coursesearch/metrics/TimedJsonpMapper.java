@@ -0,0 +1,61 @@
+package com.undo.coursesearch.metrics;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.json.stream.JsonParser;
+
+import java.lang.reflect.Type;
+
+/**
+ * {@link JacksonJsonpMapper} that measures the time spent deserializing application
+ * documents such as {@code CourseDocument} hits. The client hands those to the mapper,
+ * while the response envelope is parsed by the client's own deserializers.
+ *
+ * Timing is opt-in per thread via {@link #startTiming()} / {@link #stopTiming()}, so
+ * it can be attributed to the request that is parsing the response. Responses handled
+ * on the async client's I/O threads are not measured.
+ */
+public class TimedJsonpMapper extends JacksonJsonpMapper {
+
+    private static final ThreadLocal<long[]> ELAPSED = new ThreadLocal<>();
+
+    public TimedJsonpMapper(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    public static void startTiming() {
+        ELAPSED.set(new long[1]);
+    }
+
+    /**
+     * @return nanoseconds spent deserializing documents on this thread since
+     * {@link #startTiming()}
+     */
+    public static long stopTiming() {
+        long[] elapsed = ELAPSED.get();
+        ELAPSED.remove();
+        return elapsed != null ? elapsed[0] : 0;
+    }
+
+    @Override
+    public <T> T deserialize(JsonParser parser, Type type) {
+        long[] elapsed = ELAPSED.get();
+        if (elapsed == null) {
+            return super.deserialize(parser, type);
+        }
+
+        long start = System.nanoTime();
+        try {
+            return super.deserialize(parser, type);
+        } finally {
+            elapsed[0] += System.nanoTime() - start;
+        }
+    }
+
+    // The parent returns a plain JacksonJsonpMapper, which would drop the timing
+    @Override
+    public <T> JsonpMapper withAttribute(String name, T value) {
+        return new TimedJsonpMapper(objectMapper()).addAttribute(name, value);
+    }
+}
@@ -6,8 +6,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.stream.Stream;
 
 @Repository
 public interface CourseRepository extends ElasticsearchRepository<CourseDocument, String> {
@@ -15,6 +14,10 @@ public interface CourseRepository extends ElasticsearchRepository<CourseDocument
     // Custom query methods can be added here if needed
     Page<CourseDocument> findByCategory(String category, Pageable pageable);
     Page<CourseDocument> findByType(CourseDocument.CourseType type, Pageable pageable);
-    Page<CourseDocument> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable);
-    Page<CourseDocument> findByNextSessionDateAfter(LocalDateTime date, Pageable pageable);
+    Page<CourseDocument> findByPriceBetween(double minPrice, double maxPrice, Pageable pageable);
+    // Epoch milliseconds, like the stored field; see EpochMillis.of
+    Page<CourseDocument> findByNextSessionDateAfter(long epochMillis, Pageable pageable);
+
+    // Scroll-backed stream over the whole index, for rebuilding in-process structures
+    Stream<CourseDocument> streamAllBy();
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+package com.undo.coursesearch.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkIngester;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkListener;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undo.coursesearch.document.CourseDocument;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Streams a JSON array of courses into Elasticsearch through {@link BulkIngester}.
+ *
+ * Documents are parsed one at a time and handed to the ingester, which cuts
+ * {@code _bulk} requests by operation count and byte size and blocks the reader
+ * once {@code concurrency} requests are in flight. Memory use is therefore bounded
+ * by the batch limits, not by the size of the input.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BulkIndexer {
+
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.indexing.bulk.max-actions:1000}")
+    private int maxActions;
+
+    @Value("${app.indexing.bulk.max-size:5MB}")
+    private DataSize maxSize;
+
+    @Value("${app.indexing.bulk.concurrency:2}")
+    private int concurrency;
+
+    @Value("${app.indexing.bulk.flush-interval-seconds:5}")
+    private long flushIntervalSeconds;
+
+    /**
+     * Indexes every course of the given JSON array into {@code index}.
+     *
+     * @param onIndexed called with the courses of each bulk request that were
+     *                  acknowledged, on the client's I/O thread
+     */
+    public BulkIndexingResult index(InputStream input, String index,
+                                    Consumer<List<CourseDocument>> onIndexed) throws IOException {
+        ResultCollector collector = new ResultCollector(onIndexed);
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of courses");
+            }
+
+            BulkIngester<CourseDocument> ingester = BulkIngester.of(b -> b
+                    .client(elasticsearchClient)
+                    .maxOperations(maxActions)
+                    .maxSize(maxSize.toBytes())
+                    .maxConcurrentRequests(concurrency)
+                    .flushInterval(flushIntervalSeconds, TimeUnit.SECONDS)
+                    .listener(collector)
+            );
+
+            try {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    CourseDocument course = objectMapper.readValue(parser, CourseDocument.class);
+                    course.initializeSuggestFields();
+                    collector.submitted.incrementAndGet();
+                    ingester.add(op -> op.index(i -> i
+                            .index(index)
+                            .id(course.getId())
+                            .document(course)
+                    ), course);
+                }
+            } finally {
+                // Flushes the last partial batch and waits for in-flight requests
+                ingester.close();
+            }
+        }
+
+        BulkIndexingResult result = collector.toResult();
+        log.info("Bulk indexed {} of {} courses into {} ({} failed)",
+                result.indexed(), result.submitted(), index, result.failed());
+        return result;
+    }
+
+    public record BulkIndexingResult(long submitted, long indexed, long failed, List<ItemFailure> failures) {
+    }
+
+    public record ItemFailure(String id, String reason) {
+    }
+
+    private static class ResultCollector implements BulkListener<CourseDocument> {
+
+        private final Consumer<List<CourseDocument>> onIndexed;
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong indexed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<ItemFailure> failures = Collections.synchronizedList(new ArrayList<>());
+
+        private ResultCollector(Consumer<List<CourseDocument>> onIndexed) {
+            this.onIndexed = onIndexed;
+        }
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request, List<CourseDocument> courses) {
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<CourseDocument> courses,
+                              BulkResponse response) {
+            List<CourseDocument> acknowledged = new ArrayList<>(courses.size());
+            List<BulkResponseItem> items = response.items();
+
+            for (int i = 0; i < items.size(); i++) {
+                BulkResponseItem item = items.get(i);
+                if (item.error() != null) {
+                    recordFailure(item.id(), item.error().type() + ": " + item.error().reason());
+                } else {
+                    acknowledged.add(courses.get(i));
+                }
+            }
+
+            indexed.addAndGet(acknowledged.size());
+            if (!acknowledged.isEmpty()) {
+                onIndexed.accept(acknowledged);
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<CourseDocument> courses,
+                              Throwable failure) {
+            log.error("Bulk request {} with {} courses failed", executionId, courses.size(), failure);
+            courses.forEach(course -> recordFailure(course.getId(), failure.getMessage()));
+        }
+
+        private void recordFailure(String id, String reason) {
+            failed.incrementAndGet();
+            synchronized (failures) {
+                if (failures.size() < MAX_REPORTED_FAILURES) {
+                    failures.add(new ItemFailure(id, reason));
+                    log.warn("Failed to index course ID {}: {}", id, reason);
+                }
+            }
+        }
+
+        private BulkIndexingResult toResult() {
+            return new BulkIndexingResult(submitted.get(), indexed.get(), failed.get(), List.copyOf(failures));
+        }
+    }
+}
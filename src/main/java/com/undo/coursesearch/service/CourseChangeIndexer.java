@@ -0,0 +1,392 @@
+package com.undo.coursesearch.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkIngester;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkListener;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.MgetResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.get.GetResult;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.dto.CourseChangeDto;
+import com.undo.coursesearch.dto.SearchRequestDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Applies a batch of versioned upserts, partial updates and deletes to the live
+ * index, at a cost proportional to the number of changed courses.
+ *
+ * All writes use external versioning, so Elasticsearch itself drops changes that
+ * are not newer than the indexed course; those are reported as stale, not failed.
+ * Partial updates are merged here rather than with the update API, which does not
+ * support external versions: the affected courses are fetched with one
+ * {@code _mget}, which also lets stale changes be dropped before they are sent.
+ * Several changes of one course in a batch are folded into a single write, in
+ * order, as if they had been applied one after another.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CourseChangeIndexer {
+
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.indexing.bulk.max-actions:1000}")
+    private int maxActions;
+
+    @Value("${app.indexing.bulk.max-size:5MB}")
+    private DataSize maxSize;
+
+    @Value("${app.indexing.bulk.concurrency:2}")
+    private int concurrency;
+
+    @Value("${app.indexing.changes.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    /**
+     * Applies the given changes to {@code index}. Several changes of the same course
+     * are folded into one write with the highest version: updates are merged onto
+     * the preceding upsert or update, and an upsert or delete replaces what came
+     * before it.
+     *
+     * @param onIndexed called with the upserted and updated courses of each bulk
+     *                  request that were acknowledged, on the client's I/O thread
+     * @param onDeleted called likewise with the ids of the deleted courses
+     */
+    public CourseChangeResult apply(List<CourseChangeDto> changes, String index,
+                                    Consumer<List<CourseDocument>> onIndexed,
+                                    Consumer<List<String>> onDeleted) throws IOException {
+        validate(changes);
+        ResultCollector collector = new ResultCollector(onIndexed, onDeleted);
+        collector.submitted.addAndGet(changes.size());
+
+        Map<String, GetResult<CourseDocument>> current = fetchCurrent(index, changes);
+        Map<String, FoldedChange> folded = coalesce(changes, current, collector);
+
+        BulkIngester<PendingChange> ingester = BulkIngester.of(b -> b
+                .client(elasticsearchClient)
+                .maxOperations(maxActions)
+                .maxSize(maxSize.toBytes())
+                .maxConcurrentRequests(concurrency)
+                .listener(collector)
+        );
+
+        try {
+            for (FoldedChange fold : folded.values()) {
+                CourseChangeDto change = fold.change();
+                if (change.getOp() == CourseChangeDto.Operation.DELETE) {
+                    ingester.add(op -> op.delete(d -> d
+                            .index(index)
+                            .id(change.getId())
+                            .version(change.getVersion())
+                            .versionType(VersionType.External)
+                    ), new PendingChange(change.getId(), null, fold.changes()));
+                    continue;
+                }
+
+                CourseDocument course = resolve(fold, current.get(change.getId()), collector);
+                if (course != null) {
+                    ingester.add(op -> op.index(i -> i
+                            .index(index)
+                            .id(change.getId())
+                            .document(course)
+                            .version(change.getVersion())
+                            .versionType(VersionType.External)
+                    ), new PendingChange(change.getId(), course, fold.changes()));
+                }
+            }
+        } finally {
+            // Flushes the last partial batch and waits for in-flight requests
+            ingester.close();
+        }
+
+        CourseChangeResult result = collector.toResult();
+        log.info("Applied {} of {} course changes to {} ({} stale, {} failed)",
+                result.applied(), result.submitted(), index, result.stale(), result.failed());
+        return result;
+    }
+
+    private void validate(List<CourseChangeDto> changes) {
+        if (changes == null || changes.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one change");
+        }
+        if (changes.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch must not contain more than " + maxBatchSize + " changes");
+        }
+
+        for (CourseChangeDto change : changes) {
+            if (change.getOp() == null || change.getId() == null || change.getId().isBlank()) {
+                throw new IllegalArgumentException("Every change needs an op and an id");
+            }
+            if (change.getVersion() == null || change.getVersion() < 0) {
+                throw new IllegalArgumentException("Change of course " + change.getId() + " needs a non-negative version");
+            }
+
+            switch (change.getOp()) {
+                case UPSERT -> {
+                    if (change.getCourse() == null) {
+                        throw new IllegalArgumentException("Upsert of course " + change.getId() + " needs a course");
+                    }
+                    if (change.getCourse().getId() != null && !change.getCourse().getId().equals(change.getId())) {
+                        throw new IllegalArgumentException("Upsert of course " + change.getId()
+                                + " carries a course with id " + change.getCourse().getId());
+                    }
+                }
+                case UPDATE -> {
+                    if (change.getFields() == null || change.getFields().isEmpty()) {
+                        throw new IllegalArgumentException("Update of course " + change.getId() + " needs fields");
+                    }
+                    for (String field : change.getFields().keySet()) {
+                        if ("id".equals(field) || !SearchRequestDto.COURSE_FIELDS.contains(field)) {
+                            throw new IllegalArgumentException("Field " + field + " cannot be updated");
+                        }
+                    }
+                }
+                case DELETE -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * Folds the changes of each course, in batch order, into one change. A change
+     * is stale, and dropped, when its version is not newer than the indexed course
+     * or the changes before it in the batch.
+     */
+    private Map<String, FoldedChange> coalesce(List<CourseChangeDto> changes,
+                                               Map<String, GetResult<CourseDocument>> current,
+                                               ResultCollector collector) {
+        Map<String, FoldedChange> folded = new LinkedHashMap<>();
+        for (CourseChangeDto change : changes) {
+            FoldedChange previous = folded.get(change.getId());
+            GetResult<CourseDocument> existing = current.get(change.getId());
+            long newestVersion = previous != null ? previous.change().getVersion()
+                    : existing != null && existing.found() && existing.version() != null ? existing.version()
+                    : -1;
+            if (change.getVersion() <= newestVersion) {
+                collector.stale.incrementAndGet();
+            } else if (previous == null) {
+                folded.put(change.getId(), new FoldedChange(change, 1));
+            } else {
+                CourseChangeDto combined = fold(previous.change(), change, collector);
+                if (combined != null) {
+                    folded.put(change.getId(), new FoldedChange(combined, previous.changes() + 1));
+                }
+            }
+        }
+        return folded;
+    }
+
+    // The change that has the effect of applying earlier and then later, or null if later fails
+    private CourseChangeDto fold(CourseChangeDto earlier, CourseChangeDto later, ResultCollector collector) {
+        if (later.getOp() != CourseChangeDto.Operation.UPDATE) {
+            return later;
+        }
+
+        switch (earlier.getOp()) {
+            case DELETE -> {
+                collector.recordFailure(later.getId(), "Course not found", 1);
+                return null;
+            }
+            case UPSERT -> {
+                try {
+                    return CourseChangeDto.builder()
+                            .op(CourseChangeDto.Operation.UPSERT)
+                            .id(later.getId())
+                            .version(later.getVersion())
+                            .course(merge(earlier.getCourse(), later.getFields()))
+                            .build();
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    collector.recordFailure(later.getId(), "Invalid fields: " + e.getMessage(), 1);
+                    return null;
+                }
+            }
+            default -> {
+                Map<String, Object> fields = new LinkedHashMap<>(earlier.getFields());
+                fields.putAll(later.getFields());
+                return CourseChangeDto.builder()
+                        .op(CourseChangeDto.Operation.UPDATE)
+                        .id(later.getId())
+                        .version(later.getVersion())
+                        .fields(fields)
+                        .build();
+            }
+        }
+    }
+
+    // Versions and sources of the courses that are upserted or updated; deletes need neither
+    private Map<String, GetResult<CourseDocument>> fetchCurrent(String index, List<CourseChangeDto> changes)
+            throws IOException {
+        List<String> ids = changes.stream()
+                .filter(change -> change.getOp() != CourseChangeDto.Operation.DELETE)
+                .map(CourseChangeDto::getId)
+                .distinct()
+                .toList();
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+
+        MgetResponse<CourseDocument> response = elasticsearchClient.mget(m -> m
+                .index(index)
+                .ids(ids), CourseDocument.class);
+
+        Map<String, GetResult<CourseDocument>> current = new HashMap<>();
+        for (MultiGetResponseItem<CourseDocument> item : response.docs()) {
+            if (item.isResult()) {
+                current.put(item.result().id(), item.result());
+            }
+        }
+        return current;
+    }
+
+    /**
+     * The course to index for an upsert or update. The suggest fields are only
+     * recomputed when the title changes, so custom suggestion weights survive.
+     */
+    private CourseDocument resolve(FoldedChange fold, GetResult<CourseDocument> existing,
+                                   ResultCollector collector) {
+        CourseChangeDto change = fold.change();
+        CourseDocument previous = existing != null && existing.found() ? existing.source() : null;
+
+        CourseDocument course;
+        if (change.getOp() == CourseChangeDto.Operation.UPSERT) {
+            course = change.getCourse();
+            course.setId(change.getId());
+        } else if (previous == null) {
+            collector.recordFailure(change.getId(), "Course not found", fold.changes());
+            return null;
+        } else {
+            try {
+                course = merge(previous, change.getFields());
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                collector.recordFailure(change.getId(), "Invalid fields: " + e.getMessage(), fold.changes());
+                return null;
+            }
+        }
+
+        if (previous != null && Objects.equals(previous.getTitle(), course.getTitle())) {
+            course.setTitleSuggest(previous.getTitleSuggest());
+            course.setSuggest(previous.getSuggest());
+        } else {
+            course.initializeSuggestFields();
+        }
+        return course;
+    }
+
+    private CourseDocument merge(CourseDocument course, Map<String, Object> fields) throws JsonProcessingException {
+        ObjectNode merged = objectMapper.valueToTree(course);
+        fields.forEach((field, value) -> merged.set(field, objectMapper.valueToTree(value)));
+        return objectMapper.treeToValue(merged, CourseDocument.class);
+    }
+
+    public record CourseChangeResult(long submitted, long applied, long stale, long failed,
+                                     List<BulkIndexer.ItemFailure> failures) {
+    }
+
+    // The single change a course's changes in the batch fold into, and how many they were
+    private record FoldedChange(CourseChangeDto change, int changes) {
+    }
+
+    // A write in flight: the course to index, or only the id for a delete
+    private record PendingChange(String id, CourseDocument course, int changes) {
+    }
+
+    private static class ResultCollector implements BulkListener<PendingChange> {
+
+        private final Consumer<List<CourseDocument>> onIndexed;
+        private final Consumer<List<String>> onDeleted;
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong applied = new AtomicLong();
+        private final AtomicLong stale = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<BulkIndexer.ItemFailure> failures = Collections.synchronizedList(new ArrayList<>());
+
+        private ResultCollector(Consumer<List<CourseDocument>> onIndexed, Consumer<List<String>> onDeleted) {
+            this.onIndexed = onIndexed;
+            this.onDeleted = onDeleted;
+        }
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request, List<PendingChange> changes) {
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<PendingChange> changes,
+                              BulkResponse response) {
+            List<CourseDocument> indexed = new ArrayList<>();
+            List<String> deleted = new ArrayList<>();
+            List<BulkResponseItem> items = response.items();
+
+            for (int i = 0; i < items.size(); i++) {
+                BulkResponseItem item = items.get(i);
+                PendingChange change = changes.get(i);
+                if (item.status() == 409) {
+                    // A newer version was indexed since the _mget, or the course was deleted with one
+                    stale.addAndGet(change.changes());
+                } else if (item.error() != null) {
+                    recordFailure(item.id(), item.error().type() + ": " + item.error().reason(), change.changes());
+                } else if (change.course() != null) {
+                    indexed.add(change.course());
+                    applied.addAndGet(change.changes());
+                } else {
+                    // Deleting a missing course succeeds too, and records its version
+                    deleted.add(change.id());
+                    applied.addAndGet(change.changes());
+                }
+            }
+
+            if (!indexed.isEmpty()) {
+                onIndexed.accept(indexed);
+            }
+            if (!deleted.isEmpty()) {
+                onDeleted.accept(deleted);
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<PendingChange> changes,
+                              Throwable failure) {
+            log.error("Bulk request {} with {} course changes failed", executionId, changes.size(), failure);
+            changes.forEach(change -> recordFailure(change.id(), failure.getMessage(), change.changes()));
+        }
+
+        private void recordFailure(String id, String reason, int changes) {
+            failed.addAndGet(changes);
+            synchronized (failures) {
+                if (failures.size() < MAX_REPORTED_FAILURES) {
+                    failures.add(new BulkIndexer.ItemFailure(id, reason));
+                    log.warn("Failed to change course ID {}: {}", id, reason);
+                }
+            }
+        }
+
+        private CourseChangeResult toResult() {
+            return new CourseChangeResult(submitted.get(), applied.get(), stale.get(), failed.get(),
+                    List.copyOf(failures));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.undo.coursesearch.service;
+
+import com.undo.coursesearch.document.CourseDocument;
+
+import java.util.Collection;
+
+/**
+ * In-process view of the courses index, kept in sync by {@link DataIndexingService}:
+ * rebuilt from the repository on startup and after every reindex, and fed the
+ * courses that are loaded in between.
+ */
+public interface CourseIndexListener {
+
+    /**
+     * Adds or replaces the given courses.
+     */
+    void index(Collection<CourseDocument> courses);
+
+    void remove(Collection<String> ids);
+
+    /**
+     * Drops all courses; the view is not ready until {@link #markReady()} is called.
+     */
+    void clear();
+
+    /**
+     * Called once the view mirrors the whole index.
+     */
+    void markReady();
+}
@@ -0,0 +1,298 @@
+package com.undo.coursesearch.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.RequestCacheStats;
+import co.elastic.clients.elasticsearch._types.ScriptLanguage;
+import co.elastic.clients.elasticsearch._types.SlicesCalculation;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import co.elastic.clients.elasticsearch.core.ReindexResponse;
+import co.elastic.clients.elasticsearch.indices.SegmentSortOrder;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import co.elastic.clients.transport.rest_client.RestClientOptions;
+import com.undo.coursesearch.document.CourseDocument;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.elasticsearch.client.RequestOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Owns the lifecycle of the versioned course indices behind the {@code courses} alias.
+ *
+ * A reindex builds a new {@code courses_vN} index with replicas and refresh disabled,
+ * loads it, force-merges it, restores the serving settings and then moves the alias
+ * in a single atomic {@code _aliases} call. Searches keep hitting the previous
+ * generation until that moment.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CourseIndexManager {
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    // Above the built-in templates, so that no other template matches courses_v* first
+    private static final int TEMPLATE_PRIORITY = 500;
+
+    // ISO date-times to epoch millis, ages to whole years, prices to cents; leaves compact documents as they are
+    private static final String COMPACT_SOURCE_SCRIPT = """
+            def date = ctx._source.nextSessionDate;
+            if (date instanceof String) {
+              String d = date;
+              ctx._source.nextSessionDate = d.endsWith('Z') || d.lastIndexOf('+') > 10 || d.lastIndexOf('-') > 10
+                  ? ZonedDateTime.parse(d).toInstant().toEpochMilli()
+                  : LocalDateTime.parse(d).toInstant(ZoneOffset.UTC).toEpochMilli();
+            }
+            for (String field : ['minAge', 'maxAge']) {
+              def age = ctx._source[field];
+              if (age instanceof Number) {
+                ctx._source[field] = (int) Math.round(age.doubleValue());
+              }
+            }
+            def price = ctx._source.price;
+            if (price instanceof Number) {
+              ctx._source.price = Math.round(price.doubleValue() * 100) / 100.0;
+            }
+            """;
+
+    @Value("${app.elasticsearch.index.courses:courses}")
+    private String alias;
+
+    @Value("${app.elasticsearch.index.shards:1}")
+    private int shards;
+
+    @Value("${app.elasticsearch.index.replicas:1}")
+    private int replicas;
+
+    @Value("${app.elasticsearch.index.refresh-interval:1s}")
+    private String refreshInterval;
+
+    @Value("${app.elasticsearch.index.retain-generations:1}")
+    private int retainGenerations;
+
+    @Value("${app.elasticsearch.index.maintenance-timeout:30m}")
+    private Duration maintenanceTimeout;
+
+    public String alias() {
+        return alias;
+    }
+
+    /**
+     * The index currently serving reads, either the alias target or a legacy
+     * concrete index named like the alias.
+     */
+    public Optional<String> currentIndex() throws IOException {
+        if (elasticsearchClient.indices().existsAlias(e -> e.name(alias)).value()) {
+            return elasticsearchClient.indices().getAlias(a -> a.name(alias)).result().keySet().stream().findFirst();
+        }
+        if (elasticsearchClient.indices().exists(e -> e.index(alias)).value()) {
+            return Optional.of(alias);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Installs the index template that every {@code courses_vN} index is created from:
+     * the {@link CourseDocument} mapping, the configured shards, replicas and refresh
+     * interval, and index sorting by {@code nextSessionDate, id}. As the segments are
+     * stored in the order of the default sort, a search with that sort can stop
+     * collecting on each shard once the page is filled.
+     *
+     * Index sorting is fixed at creation, so existing generations stay unsorted until
+     * the next reindex. Installed by {@link com.undo.coursesearch.startup.StartupIndexing}
+     * before the initial load, and again by {@link #createGeneration} in case it was
+     * deleted since; putting an unchanged template is a no-op.
+     */
+    public void putIndexTemplate() throws IOException {
+        String mapping = elasticsearchOperations.indexOps(CourseDocument.class).createMapping().toJson();
+
+        elasticsearchClient.indices().putIndexTemplate(p -> p
+                .name(templateName())
+                .indexPatterns(alias + "_v*")
+                .priority(TEMPLATE_PRIORITY)
+                .template(t -> t
+                        .settings(s -> s
+                                .numberOfShards(String.valueOf(shards))
+                                .numberOfReplicas(String.valueOf(replicas))
+                                .refreshInterval(r -> r.time(refreshInterval))
+                                // Same order as buildSort for the default UPCOMING sort
+                                .sort(sort -> sort
+                                        .field("nextSessionDate", "id")
+                                        .order(SegmentSortOrder.Asc, SegmentSortOrder.Asc)))
+                        .mappings(TypeMapping.of(m -> m.withJson(new StringReader(mapping)))))
+        );
+        log.info("Put index template {} for {}_v* ({} shards, sorted by nextSessionDate)", templateName(), alias, shards);
+    }
+
+    /**
+     * Creates the next {@code courses_vN} index from the template, tuned for bulk loading.
+     * The template is put first, so that a reindex before the startup task, or after
+     * the template was deleted, never creates a generation with dynamic mappings.
+     */
+    public String createGeneration() throws IOException {
+        putIndexTemplate();
+        String index = alias + "_v" + (latestGenerationNumber() + 1);
+
+        // Overrides the serving settings of the template until finalizeGeneration
+        elasticsearchClient.indices().create(c -> c
+                .index(index)
+                .settings(s -> s
+                        .numberOfReplicas("0")
+                        .refreshInterval(t -> t.time("-1")))
+        );
+        log.info("Created index generation {}", index);
+        return index;
+    }
+
+    /**
+     * Copies all documents of {@code source} into {@code target} with a sliced,
+     * server-side {@code _reindex}, one slice per source shard. Document versions
+     * are kept, so that versioned course changes stay ordered across generations.
+     * Documents written before the compact mapping are converted on the way.
+     */
+    public long copy(String source, String target) throws IOException {
+        ReindexResponse response = maintenanceClient().reindex(r -> r
+                .source(s -> s.index(source))
+                .dest(d -> d.index(target).versionType(VersionType.External))
+                .script(s -> s.inline(i -> i.lang(ScriptLanguage.Painless).source(COMPACT_SOURCE_SCRIPT)))
+                .slices(s -> s.computed(SlicesCalculation.Auto))
+                .waitForCompletion(true)
+        );
+
+        if (response.failures() != null && !response.failures().isEmpty()) {
+            throw new IllegalStateException("Reindex from " + source + " to " + target + " failed for "
+                    + response.failures().size() + " documents");
+        }
+        log.info("Copied {} documents from {} to {} in {} ms", response.total(), source, target, response.took());
+        return response.total() != null ? response.total() : 0;
+    }
+
+    /**
+     * Merges the freshly loaded index and restores the settings used for serving.
+     */
+    public void finalizeGeneration(String index) throws IOException {
+        ElasticsearchClient client = maintenanceClient();
+        client.indices().refresh(r -> r.index(index));
+        client.indices().forcemerge(f -> f.index(index).maxNumSegments(1L));
+        client.indices().putSettings(p -> p
+                .index(index)
+                .settings(s -> s
+                        .numberOfReplicas(String.valueOf(replicas))
+                        .refreshInterval(t -> t.time(refreshInterval)))
+        );
+    }
+
+    /**
+     * Atomically points the alias at {@code index}. A legacy concrete index that
+     * still carries the alias name is dropped in the same request.
+     */
+    public void swapAlias(String index) throws IOException {
+        List<Action> actions = new ArrayList<>();
+        actions.add(Action.of(a -> a.add(add -> add.index(index).alias(alias).isWriteIndex(true))));
+
+        Optional<String> current = currentIndex();
+        if (current.isPresent() && current.get().equals(alias)) {
+            actions.add(Action.of(a -> a.removeIndex(r -> r.index(alias))));
+        } else if (current.isPresent() && !current.get().equals(index)) {
+            actions.add(Action.of(a -> a.remove(r -> r.index(current.get()).alias(alias))));
+        }
+
+        elasticsearchClient.indices().updateAliases(u -> u.actions(actions));
+        log.info("Alias {} now points to {} (was {})", alias, index, current.orElse("none"));
+    }
+
+    /**
+     * Deletes generations that are neither live nor among the most recent
+     * {@code retain-generations} previous ones.
+     */
+    public void deleteOldGenerations() throws IOException {
+        Optional<String> live = currentIndex();
+        List<String> previous = generations().stream()
+                .filter(index -> live.map(current -> !current.equals(index)).orElse(true))
+                .sorted(Comparator.comparingInt(this::generationNumber).reversed())
+                .toList();
+
+        for (String index : previous.subList(Math.min(retainGenerations, previous.size()), previous.size())) {
+            elasticsearchClient.indices().delete(d -> d.index(index));
+            log.info("Deleted old index generation {}", index);
+        }
+    }
+
+    /**
+     * Shard request cache counters of the serving index, summed over all shard copies.
+     */
+    public Map<String, Object> requestCacheStats() throws IOException {
+        RequestCacheStats requestCache = elasticsearchClient.indices()
+                .stats(s -> s.index(alias).metric("request_cache"))
+                .all().total().requestCache();
+
+        long requests = requestCache.hitCount() + requestCache.missCount();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", requestCache.hitCount());
+        stats.put("misses", requestCache.missCount());
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) requestCache.hitCount() / requests);
+        stats.put("evictions", requestCache.evictions());
+        stats.put("memorySizeInBytes", requestCache.memorySizeInBytes());
+        return stats;
+    }
+
+    /**
+     * Drops a half-built generation after a failed reindex.
+     */
+    public void deleteGeneration(String index) {
+        try {
+            elasticsearchClient.indices().delete(d -> d.index(index));
+        } catch (Exception e) {
+            log.warn("Failed to delete abandoned index generation {}", index, e);
+        }
+    }
+
+    private String templateName() {
+        return alias + "-template";
+    }
+
+    private List<String> generations() throws IOException {
+        return new ArrayList<>(elasticsearchClient.indices()
+                .get(g -> g.index(alias + "_v*").allowNoIndices(true))
+                .result()
+                .keySet());
+    }
+
+    private int latestGenerationNumber() throws IOException {
+        return generations().stream().mapToInt(this::generationNumber).max().orElse(0);
+    }
+
+    private int generationNumber(String index) {
+        try {
+            return Integer.parseInt(index.substring(alias.length() + 2));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Merges and reindexing outlive the regular socket timeout
+    private ElasticsearchClient maintenanceClient() {
+        int timeoutMillis = (int) maintenanceTimeout.toMillis();
+        RequestOptions options = RequestOptions.DEFAULT.toBuilder()
+                .setRequestConfig(RequestConfig.custom()
+                        .setSocketTimeout(timeoutMillis)
+                        .setConnectionRequestTimeout(timeoutMillis)
+                        .build())
+                .build();
+        return elasticsearchClient.withTransportOptions(new RestClientOptions(options));
+    }
+}
@@ -1,27 +1,68 @@
 package com.undo.coursesearch.service;
 
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
 import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOptions;
 import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
 import co.elastic.clients.elasticsearch._types.query_dsl.*;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.RequestItem;
 import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
+import co.elastic.clients.elasticsearch.core.search.TotalHits;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import co.elastic.clients.elasticsearch.core.search.TrackHits;
 
 import co.elastic.clients.json.JsonData;
+import com.undo.coursesearch.cache.SearchResultCache;
 import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.document.EpochMillis;
 import com.undo.coursesearch.dto.SearchRequestDto;
+import com.undo.coursesearch.engine.CourseSearchEngine;
+import com.undo.coursesearch.engine.InMemorySearchEngine;
+import com.undo.coursesearch.limit.AdaptiveLimiter;
+import com.undo.coursesearch.limit.ElasticsearchBulkheads;
+import com.undo.coursesearch.limit.OverloadedException;
 import com.undo.coursesearch.dto.SearchResponseDto;
+import com.undo.coursesearch.metrics.SearchMetrics;
 import com.undo.coursesearch.repository.CourseRepository;
+import com.undo.coursesearch.suggest.SuggestionIndex;
+import io.micrometer.core.instrument.Tags;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Slf4j
 @Service
@@ -30,183 +71,919 @@ public class CourseSearchService {
 
     private final CourseRepository courseRepository;
     private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchAsyncClient elasticsearchAsyncClient;
+    private final SearchExecutor searchExecutor;
+    private final SearchResultCache searchResultCache;
+    private final SearchResultCache facetSnapshotCache;
+    private final SuggestionIndex suggestionIndex;
+    private final InMemorySearchEngine inMemorySearchEngine;
+    private final ElasticsearchBulkheads bulkheads;
+    private final SearchMetrics searchMetrics;
+
+    // Page-mode searches against the cluster; cursor and batch searches use the clients directly
+    private final CourseSearchEngine elasticsearchEngine = this::executeSearch;
 
     private static final String COURSES_INDEX = "courses";
+    private static final int MAX_SUGGESTIONS = 10;
+    private static final String FACET_BUCKETS = "buckets";
+
+    // Only used for indexing and suggestions, never returned by searches
+    private static final List<String> INTERNAL_FIELDS = List.of("suggest", "titleSuggest");
+
+    @Value("${app.search.cursor.keep-alive:1m}")
+    private String cursorKeepAlive;
+
+    @Value("${app.search.export.page-size:1000}")
+    private int exportPageSize;
+
+    @Value("${app.search.export.keep-alive:5m}")
+    private String exportKeepAlive;
+
+    @Value("${app.search.batch.max-size:20}")
+    private int maxBatchSize;
+
+    @Value("${app.search.facets.size:20}")
+    private int facetSize;
+
+    @Value("${app.search.facets.price-interval:50}")
+    private double priceFacetInterval;
+
+    @Value("${app.search.facets.age-interval:2}")
+    private double ageFacetInterval;
+
+    @Value("${app.search.query.date-granularity:1m}")
+    private Duration dateGranularity;
+
+    @Value("${app.search.total-hits.track-up-to:10000}")
+    private int trackTotalHitsUpTo;
 
     public SearchResponseDto searchCourses(SearchRequestDto request) {
+        validateRequest(request);
+        if (inMemorySearchEngine.serves(request)) {
+            return searchInMemory(request);
+        }
+        if (request.hasCursor()) {
+            return searchWithCursor(request);
+        }
+        try {
+            if (request.isFacetOnly()) {
+                return facetSnapshotCache.get(request, () -> elasticsearchEngine.search(request));
+            }
+            return searchResultCache.get(request, () -> elasticsearchEngine.search(request));
+        } catch (RuntimeException e) {
+            return fallBack(request, e);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #searchCourses}. Depending on
+     * {@code app.search.execution-mode} the request either runs on the async
+     * Elasticsearch client, on a virtual thread, or inline on the caller.
+     */
+    public CompletableFuture<SearchResponseDto> searchCoursesAsync(SearchRequestDto request) {
+        if (searchExecutor.mode() != SearchExecutor.Mode.ASYNC) {
+            return searchExecutor.submit(() -> searchCourses(request));
+        }
+        validateRequest(request);
+        if (inMemorySearchEngine.serves(request)) {
+            return CompletableFuture.completedFuture(searchInMemory(request));
+        }
+        if (request.hasCursor()) {
+            return searchWithCursorAsync(request);
+        }
+        CompletableFuture<SearchResponseDto> response = request.isFacetOnly()
+                ? facetSnapshotCache.getAsync(request, () -> executeSearchAsync(request))
+                : searchResultCache.getAsync(request, () -> executeSearchAsync(request));
+        return response.exceptionally(error -> fallBack(request, unwrap(error)));
+    }
+
+    // Not cached: the engine answers from memory faster than a cache lookup would
+    private SearchResponseDto searchInMemory(SearchRequestDto request) {
+        return searchMetrics.time(SearchMetrics.IN_MEMORY, searchMetrics.searchTags(request),
+                () -> inMemorySearchEngine.search(request));
+    }
+
+    /**
+     * Degraded mode: answers a page-mode search from the in-memory engine when
+     * Elasticsearch fails, or rethrows the error if the engine can't serve it.
+     * Load shed by a bulkhead is always rethrown, so that clients get the
+     * {@code 503} and back off instead of moving the load onto this node.
+     */
+    private SearchResponseDto fallBack(SearchRequestDto request, Throwable error) {
+        if (error instanceof IllegalArgumentException || error instanceof OverloadedException
+                || !inMemorySearchEngine.canFallBack(request)) {
+            throw error instanceof RuntimeException runtimeException ? runtimeException : new CompletionException(error);
+        }
+        log.warn("Elasticsearch search failed, answering from the in-memory engine: {}", error.getMessage());
+        return searchInMemory(request);
+    }
+
+    private SearchResponseDto executeSearch(SearchRequestDto request) {
+        Tags tags = searchMetrics.searchTags(request);
         try {
-            Query query = buildQuery(request);
+            SearchRequest searchRequest =
+                    searchMetrics.time(SearchMetrics.BUILD_QUERY, tags, () -> buildSearchRequest(request));
+            SearchResponse<CourseDocument> response = bulkheads.call(ElasticsearchBulkheads.Bulkhead.SEARCH,
+                    () -> searchMetrics.timeRoundTrip(tags, searchRequest,
+                            () -> elasticsearchClient.search(searchRequest, CourseDocument.class)));
+            return toResponse(request, response);
+
+        } catch (OverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error searching courses", e);
+            throw new RuntimeException("Failed to search courses", e);
+        }
+    }
 
-            SearchRequest searchRequest = SearchRequest.of(s -> s
+    private CompletableFuture<SearchResponseDto> executeSearchAsync(SearchRequestDto request) {
+        Tags tags = searchMetrics.searchTags(request);
+        SearchRequest searchRequest =
+                searchMetrics.time(SearchMetrics.BUILD_QUERY, tags, () -> buildSearchRequest(request));
+
+        return bulkheads.callAsync(ElasticsearchBulkheads.Bulkhead.SEARCH,
+                        () -> searchMetrics.timeRoundTripAsync(tags, searchRequest,
+                                () -> elasticsearchAsyncClient.search(searchRequest, CourseDocument.class)))
+                .handle((response, error) -> {
+                    if (unwrap(error) instanceof OverloadedException overloaded) {
+                        throw overloaded;
+                    }
+                    if (error != null) {
+                        log.error("Error searching courses", unwrap(error));
+                        throw new RuntimeException("Failed to search courses", unwrap(error));
+                    }
+                    return toResponse(request, response);
+                });
+    }
+
+    // Package-private, like buildQuery and buildSort, for the benchmarks in src/jmh
+    SearchRequest buildSearchRequest(SearchRequestDto request) {
+        if (request.isFacets()) {
+            Query query = buildQuery(request, false);
+            return SearchRequest.of(s -> s
                     .index(COURSES_INDEX)
+                    .requestCache(usesRequestCache(query))
+                    .trackTotalHits(trackTotalHits(request))
                     .query(query)
+                    .postFilter(allOf(categoryFilter(request), typeFilter(request)))
+                    .aggregations(buildFacetAggregations(request))
+                    .source(buildSourceConfig(request))
                     .sort(buildSort(request))
                     .from(request.getPage() * request.getSize())
                     .size(request.getSize())
             );
+        }
+
+        Query query = buildQuery(request);
+
+        return SearchRequest.of(s -> s
+                .index(COURSES_INDEX)
+                .requestCache(usesRequestCache(query))
+                .trackTotalHits(trackTotalHits(request))
+                .query(query)
+                .source(buildSourceConfig(request))
+                .sort(buildSort(request))
+                .from(request.getPage() * request.getSize())
+                .size(request.getSize())
+        );
+    }
 
-            SearchResponse<CourseDocument> response = elasticsearchClient.search(searchRequest, CourseDocument.class);
+    private SearchResponseDto toResponse(SearchRequestDto request, ResponseBody<CourseDocument> response) {
+        List<SearchResponseDto.CourseDto> courses = toCourses(request, response.hits().hits());
+
+        TotalHits totalHits = response.hits().total();
+        long total;
+        String totalRelation;
+        if (totalHits != null) {
+            total = totalHits.value();
+            totalRelation = totalHits.relation() == TotalHitsRelation.Gte
+                    ? SearchResponseDto.TOTAL_LOWER_BOUND : SearchResponseDto.TOTAL_EXACT;
+        } else {
+            total = request.skipsTotalCount() ? request.getKnownTotal() : 0;
+            totalRelation = knownTotalRelation(total);
+        }
+        int totalPages = request.getSize() > 0 ? (int) Math.ceil((double) total / request.getSize()) : 0;
+
+        return SearchResponseDto.builder()
+                .total(total)
+                .totalRelation(totalRelation)
+                .page(request.getPage())
+                .size(request.getSize())
+                .totalPages(totalPages)
+                .courses(courses)
+                .facets(request.isFacets() ? toFacets(response.aggregations()) : null)
+                .build();
+    }
 
-            List<SearchResponseDto.CourseDto> courses = response.hits().hits().stream()
-                    .map(Hit::source)
-                    .map(SearchResponseDto.CourseDto::fromDocument)
-                    .collect(Collectors.toList());
+    private List<SearchResponseDto.CourseDto> toCourses(SearchRequestDto request, List<Hit<CourseDocument>> hits) {
+        return searchMetrics.time(SearchMetrics.MAP, searchMetrics.searchTags(request), () -> hits.stream()
+                .map(Hit::source)
+                .map(SearchResponseDto.CourseDto::fromDocument)
+                .collect(Collectors.toList()));
+    }
 
-            long total = response.hits().total() != null ? response.hits().total().value() : 0;
-            int totalPages = (int) Math.ceil((double) total / request.getSize());
+    /**
+     * Runs several page-mode searches as a single {@code _msearch} round trip.
+     * Entries fail individually: a failed entry carries an {@code error} and the
+     * others are still returned.
+     */
+    public List<SearchResponseDto> searchCoursesBatch(List<SearchRequestDto> requests) {
+        validateBatch(requests);
+        if (requests.stream().allMatch(inMemorySearchEngine::serves)) {
+            return requests.stream().map(this::searchInMemory).collect(Collectors.toList());
+        }
+        try {
+            MsearchRequest batchRequest = buildBatchRequest(requests);
+            MsearchResponse<CourseDocument> response = bulkheads.call(ElasticsearchBulkheads.Bulkhead.SEARCH,
+                    () -> searchMetrics.timeBatch(batchTags(requests), batchRequest,
+                            () -> elasticsearchClient.msearch(batchRequest, CourseDocument.class)));
+            return toBatchResponse(requests, response);
+
+        } catch (OverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error running batch search", e);
+            throw new RuntimeException("Failed to search courses", e);
+        }
+    }
 
-            return SearchResponseDto.builder()
-                    .total(total)
-                    .page(request.getPage())
+    public CompletableFuture<List<SearchResponseDto>> searchCoursesBatchAsync(List<SearchRequestDto> requests) {
+        if (searchExecutor.mode() != SearchExecutor.Mode.ASYNC) {
+            return searchExecutor.submit(() -> searchCoursesBatch(requests));
+        }
+
+        validateBatch(requests);
+        if (requests.stream().allMatch(inMemorySearchEngine::serves)) {
+            return CompletableFuture.completedFuture(
+                    requests.stream().map(this::searchInMemory).collect(Collectors.toList()));
+        }
+        MsearchRequest batchRequest = buildBatchRequest(requests);
+        return bulkheads.callAsync(ElasticsearchBulkheads.Bulkhead.SEARCH,
+                        () -> searchMetrics.timeBatchAsync(batchTags(requests), batchRequest,
+                                () -> elasticsearchAsyncClient.msearch(batchRequest, CourseDocument.class)))
+                .handle((response, error) -> {
+                    if (unwrap(error) instanceof OverloadedException overloaded) {
+                        throw overloaded;
+                    }
+                    if (error != null) {
+                        log.error("Error running batch search", unwrap(error));
+                        throw new RuntimeException("Failed to search courses", unwrap(error));
+                    }
+                    return toBatchResponse(requests, response);
+                });
+    }
+
+    private void validateBatch(List<SearchRequestDto> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one search");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch must not contain more than " + maxBatchSize + " searches");
+        }
+        if (requests.stream().anyMatch(SearchRequestDto::hasCursor)) {
+            throw new IllegalArgumentException("Cursor pagination is not supported in batch searches");
+        }
+        requests.forEach(CourseSearchService::validateRequest);
+    }
+
+    private List<Tags> batchTags(List<SearchRequestDto> requests) {
+        return requests.stream()
+                .map(request -> searchMetrics.searchTags(request).and("operation", "msearch"))
+                .toList();
+    }
+
+    private MsearchRequest buildBatchRequest(List<SearchRequestDto> requests) {
+        List<RequestItem> searches = new ArrayList<>(requests.size());
+        for (SearchRequestDto request : requests) {
+            Query query = buildQuery(request, !request.isFacets());
+            searches.add(RequestItem.of(item -> item
+                    .header(h -> h.index(COURSES_INDEX).requestCache(usesRequestCache(query)))
+                    .body(b -> {
+                        b.query(query)
+                                .sort(buildSort(request))
+                                .trackTotalHits(trackTotalHits(request))
+                                .source(buildSourceConfig(request))
+                                .from(request.getPage() * request.getSize())
+                                .size(request.getSize());
+                        if (request.isFacets()) {
+                            b.postFilter(allOf(categoryFilter(request), typeFilter(request)))
+                                    .aggregations(buildFacetAggregations(request));
+                        }
+                        return b;
+                    })
+            ));
+        }
+        return MsearchRequest.of(m -> m.searches(searches));
+    }
+
+    private List<SearchResponseDto> toBatchResponse(List<SearchRequestDto> requests,
+                                                    MsearchResponse<CourseDocument> response) {
+        List<MultiSearchResponseItem<CourseDocument>> items = response.responses();
+        List<SearchResponseDto> results = new ArrayList<>(items.size());
+
+        for (int i = 0; i < items.size(); i++) {
+            SearchRequestDto request = requests.get(i);
+            MultiSearchResponseItem<CourseDocument> item = items.get(i);
+
+            if (item.isResult()) {
+                results.add(toResponse(request, item.result()));
+            } else {
+                results.add(SearchResponseDto.builder()
+                        .page(request.getPage())
+                        .size(request.getSize())
+                        .courses(List.of())
+                        .error(item.failure().error().reason())
+                        .build());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Cursor mode: pages through a point-in-time with {@code search_after}, so page
+     * N+1 costs the same as page 1 and is not bounded by the result window.
+     */
+    private SearchResponseDto searchWithCursor(SearchRequestDto request) {
+        SearchCursor cursor = request.isFirstCursorPage() ? null : SearchCursor.decode(request.getCursor());
+
+        Tags tags = searchMetrics.searchTags(request);
+        try {
+            String pitId = cursor != null ? cursor.pit()
+                    : bulkheads.call(ElasticsearchBulkheads.Bulkhead.SEARCH, this::openPointInTime);
+
+            SearchRequest searchRequest = searchMetrics.time(SearchMetrics.BUILD_QUERY, tags,
+                    () -> buildCursorRequest(request, cursor, pitId));
+            SearchResponse<CourseDocument> response = bulkheads.call(ElasticsearchBulkheads.Bulkhead.SEARCH,
+                    () -> searchMetrics.timeRoundTrip(tags, searchRequest,
+                            () -> elasticsearchClient.search(searchRequest, CourseDocument.class)));
+            SearchResponseDto result = toCursorResponse(request, cursor, pitId, response);
+
+            if (result.getNextCursor() == null) {
+                closePointInTime(pitId);
+            }
+            return result;
+
+        } catch (Exception e) {
+            throw cursorFailure(cursor, e);
+        }
+    }
+
+    private CompletableFuture<SearchResponseDto> searchWithCursorAsync(SearchRequestDto request) {
+        SearchCursor cursor = request.isFirstCursorPage() ? null : SearchCursor.decode(request.getCursor());
+
+        CompletableFuture<String> pitId = cursor != null
+                ? CompletableFuture.completedFuture(cursor.pit())
+                : bulkheads.callAsync(ElasticsearchBulkheads.Bulkhead.SEARCH,
+                        () -> elasticsearchAsyncClient.openPointInTime(o -> o
+                                .index(COURSES_INDEX)
+                                .keepAlive(k -> k.time(cursorKeepAlive))
+                        )).thenApply(OpenPointInTimeResponse::id);
+
+        Tags tags = searchMetrics.searchTags(request);
+        return pitId.thenCompose(id -> {
+                    SearchRequest searchRequest = searchMetrics.time(SearchMetrics.BUILD_QUERY, tags,
+                            () -> buildCursorRequest(request, cursor, id));
+                    return bulkheads.callAsync(ElasticsearchBulkheads.Bulkhead.SEARCH,
+                                    () -> searchMetrics.timeRoundTripAsync(tags, searchRequest,
+                                            () -> elasticsearchAsyncClient.search(searchRequest, CourseDocument.class)))
+                            .thenApply(response -> {
+                                SearchResponseDto result = toCursorResponse(request, cursor, id, response);
+                                if (result.getNextCursor() == null) {
+                                    elasticsearchAsyncClient.closePointInTime(c -> c.id(id))
+                                            .exceptionally(error -> {
+                                                log.warn("Failed to close point-in-time", error);
+                                                return null;
+                                            });
+                                }
+                                return result;
+                            });
+                })
+                .exceptionally(error -> {
+                    throw cursorFailure(cursor, unwrap(error));
+                });
+    }
+
+    private SearchRequest buildCursorRequest(SearchRequestDto request, SearchCursor cursor, String pitId) {
+        return SearchRequest.of(s -> {
+            s.query(buildQuery(request))
+                    .source(buildSourceConfig(request))
+                    .sort(buildSort(request))
                     .size(request.getSize())
-                    .totalPages(totalPages)
-                    .courses(courses)
-                    .build();
+                    .pit(p -> p.id(pitId).keepAlive(k -> k.time(cursorKeepAlive)))
+                    // Only the first page counts, up to the same cap; later pages reuse the total carried by the cursor
+                    .trackTotalHits(cursor == null ? trackTotalHits(request) : TrackHits.of(t -> t.enabled(false)));
+            if (cursor != null) {
+                s.searchAfter(cursor.searchAfter());
+            }
+            return s;
+        });
+    }
+
+    private SearchResponseDto toCursorResponse(SearchRequestDto request, SearchCursor cursor, String pitId,
+                                               SearchResponse<CourseDocument> response) {
+        List<Hit<CourseDocument>> hits = response.hits().hits();
+        List<SearchResponseDto.CourseDto> courses = toCourses(request, hits);
+
+        TotalHits totalHits = response.hits().total();
+        long total;
+        String totalRelation;
+        if (cursor == null && totalHits != null) {
+            total = totalHits.value();
+            totalRelation = totalHits.relation() == TotalHitsRelation.Gte
+                    ? SearchResponseDto.TOTAL_LOWER_BOUND : SearchResponseDto.TOTAL_EXACT;
+        } else {
+            total = cursor != null ? cursor.total() : 0;
+            totalRelation = knownTotalRelation(total);
+        }
+        int page = cursor != null ? cursor.page() + 1 : 0;
+
+        String nextCursor = null;
+        if (hits.size() == request.getSize() && !hits.isEmpty()) {
+            String nextPitId = response.pitId() != null ? response.pitId() : pitId;
+            nextCursor = SearchCursor.of(nextPitId, hits.get(hits.size() - 1).sort(), total, page).encode();
+        }
+
+        return SearchResponseDto.builder()
+                .total(total)
+                .totalRelation(totalRelation)
+                .page(page)
+                .size(request.getSize())
+                .totalPages((int) Math.ceil((double) total / request.getSize()))
+                .courses(courses)
+                .nextCursor(nextCursor)
+                .build();
+    }
 
+    private RuntimeException cursorFailure(SearchCursor cursor, Throwable e) {
+        if (e instanceof IllegalArgumentException || e instanceof OverloadedException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof ElasticsearchException elasticsearchException
+                && elasticsearchException.status() == 404 && cursor != null) {
+            return new IllegalArgumentException("Search cursor has expired", e);
+        }
+        log.error("Error searching courses with cursor", e);
+        return new RuntimeException("Failed to search courses", e);
+    }
+
+    private String openPointInTime() throws IOException {
+        return elasticsearchClient.openPointInTime(o -> o
+                .index(COURSES_INDEX)
+                .keepAlive(k -> k.time(cursorKeepAlive))
+        ).id();
+    }
+
+    private void closePointInTime(String pitId) {
+        try {
+            elasticsearchClient.closePointInTime(c -> c.id(pitId));
         } catch (Exception e) {
-            log.error("Error searching courses", e);
-            throw new RuntimeException("Failed to search courses", e);
+            // The point-in-time expires on its own after the keep-alive
+            log.warn("Failed to close point-in-time", e);
         }
     }
 
-    public List<String> getSuggestions(String query) {
+    /**
+     * Every course matching the request's filters, for {@code /api/search/export}.
+     * Paging, sort and facets are ignored: courses come in index order, which follows
+     * the index sort ({@code nextSessionDate, id}) within each shard.
+     *
+     * The point-in-time is opened here, so errors before the first course are thrown
+     * to the caller. Pages of {@code app.search.export.page-size} are then fetched with
+     * {@code search_after} only as the stream is consumed, so at most one page is held
+     * in memory and a slow reader slows down the reads instead of buffering them.
+     * The stream must be closed to release the point-in-time and the export slot.
+     */
+    public Stream<SearchResponseDto.CourseDto> exportCourses(SearchRequestDto request) {
+        validateRequest(request);
+
+        AdaptiveLimiter.Permit permit = bulkheads.hold(ElasticsearchBulkheads.Bulkhead.EXPORT);
+        String pitId;
         try {
-            SearchRequest searchRequest = SearchRequest.of(s -> s
+            pitId = elasticsearchClient.openPointInTime(o -> o
                     .index(COURSES_INDEX)
-                    .size(0)
-                    .suggest(suggest -> suggest
-                            .suggesters("course_suggest", cs -> cs
-                                    .prefix(query)
-                                    .completion(c -> c
-                                            .field("suggest")
-                                            .size(10)
-                                            .skipDuplicates(true)
-                                    )
-                            )
-                    )
-            );
+                    .keepAlive(k -> k.time(exportKeepAlive))
+            ).id();
+        } catch (Exception e) {
+            permit.ignore();
+            log.error("Error opening point-in-time for export", e);
+            throw new RuntimeException("Failed to export courses", e);
+        }
 
-            SearchResponse<CourseDocument> response = elasticsearchClient.search(searchRequest, CourseDocument.class);
-
-            List<String> suggestions = new ArrayList<>();
-            if (response.suggest() != null && response.suggest().get("course_suggest") != null) {
-                response.suggest().get("course_suggest").forEach(suggestItem -> {
-                    if (suggestItem.completion() != null) {
-                        suggestItem.completion().options().forEach(option -> {
-                            if (option.source() != null && option.source().getTitle() != null) {
-                                suggestions.add(option.source().getTitle());
-                            }
-                        });
-                    }
+        CourseExport export = new CourseExport(request, pitId);
+        return StreamSupport.stream(export, false)
+                .onClose(() -> {
+                    closePointInTime(export.pitId);
+                    permit.ignore();
                 });
+    }
+
+    private final class CourseExport extends Spliterators.AbstractSpliterator<SearchResponseDto.CourseDto> {
+
+        private final Query query;
+        private final SourceConfig source;
+        private final Tags tags;
+        private String pitId;
+        private List<FieldValue> searchAfter;
+        private Iterator<Hit<CourseDocument>> page = Collections.emptyIterator();
+        private boolean lastPage;
+
+        CourseExport(SearchRequestDto request, String pitId) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.query = buildQuery(request);
+            this.source = buildSourceConfig(request);
+            this.tags = searchMetrics.exportTags(request);
+            this.pitId = pitId;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super SearchResponseDto.CourseDto> action) {
+            while (!page.hasNext()) {
+                if (lastPage) {
+                    return false;
+                }
+                fetchPage();
             }
+            action.accept(SearchResponseDto.CourseDto.fromDocument(page.next().source()));
+            return true;
+        }
+
+        private void fetchPage() {
+            // _shard_doc is the cheapest total order over a point-in-time
+            SearchRequest searchRequest = SearchRequest.of(s -> {
+                s.query(query)
+                        .source(source)
+                        .sort(so -> so.field(f -> f.field("_shard_doc")))
+                        .size(exportPageSize)
+                        .pit(p -> p.id(pitId).keepAlive(k -> k.time(exportKeepAlive)))
+                        .trackTotalHits(t -> t.enabled(false));
+                if (searchAfter != null) {
+                    s.searchAfter(searchAfter);
+                }
+                return s;
+            });
+
+            SearchResponse<CourseDocument> response;
+            try {
+                response = searchMetrics.timeRoundTrip(tags, searchRequest,
+                        () -> elasticsearchClient.search(searchRequest, CourseDocument.class));
+            } catch (Exception e) {
+                log.error("Error exporting courses", e);
+                throw new RuntimeException("Failed to export courses", e);
+            }
+
+            List<Hit<CourseDocument>> hits = response.hits().hits();
+            if (response.pitId() != null) {
+                pitId = response.pitId();
+            }
+            if (!hits.isEmpty()) {
+                searchAfter = hits.get(hits.size() - 1).sort();
+            }
+            lastPage = hits.size() < exportPageSize;
+            page = hits.iterator();
+        }
+    }
 
-            return suggestions.stream().distinct().limit(10).collect(Collectors.toList());
+    public List<String> getSuggestions(String query) {
+        Tags tags = searchMetrics.suggestTags();
+        if (suggestionIndex.isReady()) {
+            return searchMetrics.time(SearchMetrics.LOCAL_INDEX, tags,
+                    () -> suggestionIndex.suggest(query, MAX_SUGGESTIONS));
+        }
 
+        // Fall back to the completion suggester while the local index is not populated
+        try {
+            SearchRequest searchRequest =
+                    searchMetrics.time(SearchMetrics.BUILD_QUERY, tags, () -> buildSuggestRequest(query));
+            SearchResponse<CourseDocument> response = bulkheads.call(ElasticsearchBulkheads.Bulkhead.SUGGEST,
+                    () -> searchMetrics.timeRoundTrip(tags, searchRequest,
+                            () -> elasticsearchClient.search(searchRequest, CourseDocument.class)));
+            return searchMetrics.time(SearchMetrics.MAP, tags, () -> toSuggestions(response));
+
+        } catch (OverloadedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error getting suggestions for query: {}", query, e);
             return new ArrayList<>();
         }
     }
 
-    private Query buildQuery(SearchRequestDto request) {
-        BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
-
-        // Text search with fuzzy matching
-        if (request.hasTextSearch()) {
-            MultiMatchQuery multiMatchQuery = MultiMatchQuery.of(m -> m
-                    .query(request.getQ())
-                    .fields("title^2", "description")
-                    .fuzziness("AUTO")
-                    .operator(Operator.Or)
-                    .type(TextQueryType.BestFields)
-            );
-            boolQueryBuilder.must(multiMatchQuery._toQuery());
+    public CompletableFuture<List<String>> getSuggestionsAsync(String query) {
+        if (suggestionIndex.isReady()) {
+            return CompletableFuture.completedFuture(getSuggestions(query));
         }
-
-        // Category filter
-        if (request.getCategory() != null && !request.getCategory().isEmpty()) {
-            TermQuery categoryQuery = TermQuery.of(t -> t
-                    .field("category")
-                    .value(request.getCategory())
-            );
-            boolQueryBuilder.filter(categoryQuery._toQuery());
+        if (searchExecutor.mode() != SearchExecutor.Mode.ASYNC) {
+            return searchExecutor.submit(() -> getSuggestions(query));
         }
 
-        // Type filter
-        if (request.getType() != null) {
-            TermQuery typeQuery = TermQuery.of(t -> t
-                    .field("type")
-                    .value(request.getType().name())
-            );
-            boolQueryBuilder.filter(typeQuery._toQuery());
+        Tags tags = searchMetrics.suggestTags();
+        SearchRequest searchRequest =
+                searchMetrics.time(SearchMetrics.BUILD_QUERY, tags, () -> buildSuggestRequest(query));
+
+        return bulkheads.callAsync(ElasticsearchBulkheads.Bulkhead.SUGGEST,
+                        () -> searchMetrics.timeRoundTripAsync(tags, searchRequest,
+                                () -> elasticsearchAsyncClient.search(searchRequest, CourseDocument.class)))
+                .handle((response, error) -> {
+                    if (unwrap(error) instanceof OverloadedException overloaded) {
+                        throw overloaded;
+                    }
+                    if (error != null) {
+                        log.error("Error getting suggestions for query: {}", query, unwrap(error));
+                        return new ArrayList<>();
+                    }
+                    return searchMetrics.time(SearchMetrics.MAP, tags, () -> toSuggestions(response));
+                });
+    }
+
+    private SearchRequest buildSuggestRequest(String query) {
+        return SearchRequest.of(s -> s
+                .index(COURSES_INDEX)
+                .size(0)
+                .source(src -> src.filter(f -> f.includes("title")))
+                .suggest(suggest -> suggest
+                        .suggesters("course_suggest", cs -> cs
+                                .prefix(query)
+                                .completion(c -> c
+                                        .field("suggest")
+                                        .size(MAX_SUGGESTIONS)
+                                        .skipDuplicates(true)
+                                )
+                        )
+                )
+        );
+    }
+
+    private List<String> toSuggestions(SearchResponse<CourseDocument> response) {
+        List<String> suggestions = new ArrayList<>();
+        if (response.suggest() != null && response.suggest().get("course_suggest") != null) {
+            response.suggest().get("course_suggest").forEach(suggestItem -> {
+                if (suggestItem.completion() != null) {
+                    suggestItem.completion().options().forEach(option -> {
+                        if (option.source() != null && option.source().getTitle() != null) {
+                            suggestions.add(option.source().getTitle());
+                        }
+                    });
+                }
+            });
         }
 
-        // Age range filter
-        if (request.hasAgeFilter()) {
-            BoolQuery.Builder ageQueryBuilder = new BoolQuery.Builder();
+        return suggestions.stream().distinct().limit(MAX_SUGGESTIONS).collect(Collectors.toList());
+    }
 
-            if (request.getMinAge() != null) {
-                RangeQuery minAgeQuery = RangeQuery.of(r -> r
-                        .field("maxAge")
-                        .gte(JsonData.of(request.getMinAge()))  // Direct JsonData.of() conversion
-                );
-                ageQueryBuilder.must(minAgeQuery._toQuery());
+    static void validateRequest(SearchRequestDto request) {
+        if (request.getKnownTotal() != null && request.getKnownTotal() < 0) {
+            throw new IllegalArgumentException("knownTotal must not be negative");
+        }
+        if (request.getFields() == null) {
+            return;
+        }
+        for (String field : request.getFields()) {
+            if (!SearchRequestDto.COURSE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
             }
+        }
+    }
 
-            if (request.getMaxAge() != null) {
-                RangeQuery maxAgeQuery = RangeQuery.of(r -> r
-                        .field("minAge")
-                        .lte(JsonData.of(request.getMaxAge()))  // Direct JsonData.of() conversion
-                );
-                ageQueryBuilder.must(maxAgeQuery._toQuery());
+    /**
+     * Fetches only the projected fields, if any, and never the internal suggestion
+     * fields, so less is transferred and deserialized per hit.
+     */
+    private static SourceConfig buildSourceConfig(SearchRequestDto request) {
+        List<String> fields = request.projectedFields();
+        return SourceConfig.of(s -> s.filter(f -> {
+            if (fields != null) {
+                f.includes(fields);
             }
+            return f.excludes(INTERNAL_FIELDS);
+        }));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    Query buildQuery(SearchRequestDto request) {
+        return buildQuery(request, true);
+    }
+
+    /**
+     * Filter-only queries repeat byte for byte, so their hits too are worth caching
+     * per shard. Free-text hit lists are mostly one-off and would only evict them, so
+     * other queries keep Elasticsearch's default ({@code null}).
+     */
+    static Boolean usesRequestCache(Query query) {
+        return query.isConstantScore() ? Boolean.TRUE : null;
+    }
+
+    /**
+     * Builds the query in a canonical form, so that equivalent searches serialize to
+     * identical bytes and can be answered from the shard request cache:
+     * <ul>
+     *     <li>filters are always in the same order, one per field, sorted by field name</li>
+     *     <li>ages are normalized, prices to cents, and {@code startDate} is rounded down
+     *     to {@code app.search.query.date-granularity} and sent as epoch milliseconds</li>
+     *     <li>searches without text are a {@code constant_score} over the filters</li>
+     * </ul>
+     */
+    private Query buildQuery(SearchRequestDto request, boolean includeFacetFilters) {
+        List<Query> filters = new ArrayList<>();
+
+        // Category and type filters; facet searches apply them as a post_filter instead
+        Query categoryFilter = includeFacetFilters ? categoryFilter(request) : null;
+        if (categoryFilter != null) {
+            filters.add(categoryFilter);
+        }
 
-            boolQueryBuilder.filter(ageQueryBuilder.build()._toQuery());
+        // Age range filter: the course's age range must overlap the requested one
+        if (request.getMinAge() != null) {
+            filters.add(RangeQuery.of(r -> r
+                    .field("maxAge")
+                    .gte(JsonData.of(canonical(request.getMinAge())))
+            )._toQuery());
+        }
+        if (request.getMaxAge() != null) {
+            filters.add(RangeQuery.of(r -> r
+                    .field("minAge")
+                    .lte(JsonData.of(canonical(request.getMaxAge())))
+            )._toQuery());
         }
 
-        // Price range filter
+        // Date filter
+        if (request.hasDateFilter()) {
+            filters.add(RangeQuery.of(r -> r
+                    .field("nextSessionDate")
+                    .gte(JsonData.of(EpochMillis.of(request.roundedStartDate(dateGranularity))))
+            )._toQuery());
+        }
+
+        // Price range filter, widened to whole cents so that it never excludes a listed price
         if (request.hasPriceFilter()) {
             RangeQuery.Builder priceQueryBuilder = new RangeQuery.Builder().field("price");
 
             if (request.getMinPrice() != null) {
-                priceQueryBuilder.gte(JsonData.of(request.getMinPrice()));
+                priceQueryBuilder.gte(JsonData.of(request.getMinPrice().setScale(2, RoundingMode.FLOOR)));
             }
 
             if (request.getMaxPrice() != null) {
-                priceQueryBuilder.lte(JsonData.of(request.getMaxPrice()));
+                priceQueryBuilder.lte(JsonData.of(request.getMaxPrice().setScale(2, RoundingMode.CEILING)));
             }
 
-            boolQueryBuilder.filter(priceQueryBuilder.build()._toQuery());
+            filters.add(priceQueryBuilder.build()._toQuery());
         }
 
-        // Date filter
-        if (request.hasDateFilter()) {
-            RangeQuery dateQuery = RangeQuery.of(r -> r
-                    .field("nextSessionDate")
-                    .gte(JsonData.of( FieldValue.of(request.getStartDate().toString())))
-            );
-            boolQueryBuilder.filter(dateQuery._toQuery());
+        Query typeFilter = includeFacetFilters ? typeFilter(request) : null;
+        if (typeFilter != null) {
+            filters.add(typeFilter);
         }
 
-        BoolQuery boolQuery = boolQueryBuilder.build();
+        // Text search with fuzzy matching
+        if (request.hasTextSearch()) {
+            MultiMatchQuery multiMatchQuery = MultiMatchQuery.of(m -> m
+                    .query(request.getQ().trim())
+                    .fields("title^2", "description")
+                    .fuzziness("AUTO")
+                    .operator(Operator.Or)
+                    .type(TextQueryType.BestFields)
+            );
+            return BoolQuery.of(b -> b
+                    .must(multiMatchQuery._toQuery())
+                    .filter(filters)
+            )._toQuery();
+        }
 
         // If no conditions are set, return match_all query
-        if (boolQuery.must().isEmpty() && boolQuery.filter().isEmpty() && boolQuery.should().isEmpty()) {
+        if (filters.isEmpty()) {
             return MatchAllQuery.of(m -> m)._toQuery();
         }
 
-        return boolQuery._toQuery();
+        // Results are sorted by field, so scores would never be used
+        return ConstantScoreQuery.of(c -> c
+                .filter(filters.size() == 1 ? filters.get(0) : BoolQuery.of(b -> b.filter(filters))._toQuery())
+        )._toQuery();
     }
 
-    private co.elastic.clients.elasticsearch._types.SortOptions buildSort(SearchRequestDto request) {
-        return switch (request.getSort()) {
-            case PRICE_ASC -> co.elastic.clients.elasticsearch._types.SortOptions.of(s -> s
+    // 8, 8.0 and 8.00 all serialize as 8
+    private static BigDecimal canonical(BigDecimal value) {
+        BigDecimal stripped = value.stripTrailingZeros();
+        return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+    }
+
+    private Query categoryFilter(SearchRequestDto request) {
+        if (request.getCategory() == null || request.getCategory().isEmpty()) {
+            return null;
+        }
+        return TermQuery.of(t -> t
+                .field("category")
+                .value(request.getCategory())
+        )._toQuery();
+    }
+
+    private Query typeFilter(SearchRequestDto request) {
+        if (request.getType() == null) {
+            return null;
+        }
+        return TermQuery.of(t -> t
+                .field("type")
+                .value(request.getType().name())
+        )._toQuery();
+    }
+
+    private static Query allOf(Query... filters) {
+        List<Query> clauses = new ArrayList<>();
+        for (Query filter : filters) {
+            if (filter != null) {
+                clauses.add(filter);
+            }
+        }
+        if (clauses.isEmpty()) {
+            return MatchAllQuery.of(m -> m)._toQuery();
+        }
+        return clauses.size() == 1 ? clauses.get(0) : BoolQuery.of(b -> b.filter(clauses))._toQuery();
+    }
+
+    /**
+     * Facet aggregations with post_filter semantics: each facet is computed under
+     * every selected facet filter except its own, so choosing a category doesn't
+     * collapse the category counts.
+     */
+    private Map<String, Aggregation> buildFacetAggregations(SearchRequestDto request) {
+        Query categoryFilter = categoryFilter(request);
+        Query typeFilter = typeFilter(request);
+        Query bothFilters = allOf(categoryFilter, typeFilter);
+
+        Map<String, Aggregation> aggregations = new LinkedHashMap<>();
+        aggregations.put("category", facet(allOf(typeFilter), Aggregation.of(a -> a
+                .terms(t -> t.field("category").size(facetSize)))));
+        aggregations.put("type", facet(allOf(categoryFilter), Aggregation.of(a -> a
+                .terms(t -> t.field("type").size(facetSize)))));
+        aggregations.put("price", facet(bothFilters, Aggregation.of(a -> a
+                .histogram(h -> h.field("price").interval(priceFacetInterval).minDocCount(1)))));
+        aggregations.put("age", facet(bothFilters, Aggregation.of(a -> a
+                .histogram(h -> h.field("minAge").interval(ageFacetInterval).minDocCount(1)))));
+        return aggregations;
+    }
+
+    private static Aggregation facet(Query filter, Aggregation buckets) {
+        return Aggregation.of(a -> a
+                .filter(filter)
+                .aggregations(FACET_BUCKETS, buckets));
+    }
+
+    private static Map<String, List<SearchResponseDto.FacetBucket>> toFacets(Map<String, Aggregate> aggregations) {
+        Map<String, List<SearchResponseDto.FacetBucket>> facets = new LinkedHashMap<>();
+
+        for (String name : List.of("category", "type")) {
+            facets.put(name, aggregations.get(name).filter().aggregations().get(FACET_BUCKETS)
+                    .sterms().buckets().array().stream()
+                    .map(bucket -> new SearchResponseDto.FacetBucket(bucket.key().stringValue(), bucket.docCount()))
+                    .collect(Collectors.toList()));
+        }
+
+        for (String name : List.of("price", "age")) {
+            facets.put(name, aggregations.get(name).filter().aggregations().get(FACET_BUCKETS)
+                    .histogram().buckets().array().stream()
+                    .map(bucket -> new SearchResponseDto.FacetBucket(
+                            BigDecimal.valueOf(bucket.key()).stripTrailingZeros().toPlainString(), bucket.docCount()))
+                    .collect(Collectors.toList()));
+        }
+        return facets;
+    }
+
+    /**
+     * Hits are counted up to {@code app.search.total-hits.track-up-to} (a negative
+     * value counts exactly), which lets Elasticsearch skip non-competitive documents
+     * once the cap is reached. Later pages that pass the {@code knownTotal} of an
+     * earlier page are not counted at all.
+     */
+    TrackHits trackTotalHits(SearchRequestDto request) {
+        if (request.skipsTotalCount()) {
+            return TrackHits.of(t -> t.enabled(false));
+        }
+        if (trackTotalHitsUpTo < 0) {
+            return TrackHits.of(t -> t.enabled(true));
+        }
+        return TrackHits.of(t -> t.count(trackTotalHitsUpTo));
+    }
+
+    // A known total at the cap was itself a lower bound
+    String knownTotalRelation(long knownTotal) {
+        return trackTotalHitsUpTo >= 0 && knownTotal >= trackTotalHitsUpTo
+                ? SearchResponseDto.TOTAL_LOWER_BOUND : SearchResponseDto.TOTAL_EXACT;
+    }
+
+    List<SortOptions> buildSort(SearchRequestDto request) {
+        SortOptions primary = switch (request.getSort()) {
+            case PRICE_ASC -> SortOptions.of(s -> s
                     .field(f -> f.field("price").order(SortOrder.Asc)));
-            case PRICE_DESC -> co.elastic.clients.elasticsearch._types.SortOptions.of(s -> s
+            case PRICE_DESC -> SortOptions.of(s -> s
                     .field(f -> f.field("price").order(SortOrder.Desc)));
-            default -> co.elastic.clients.elasticsearch._types.SortOptions.of(s -> s
+            default -> SortOptions.of(s -> s
                     .field(f -> f.field("nextSessionDate").order(SortOrder.Asc)));
         };
+
+        // Tiebreaker so that equal sort values have a stable order across pages and cursors
+        SortOptions tiebreaker = SortOptions.of(s -> s
+                .field(f -> f.field("id").order(SortOrder.Asc)));
+
+        return List.of(primary, tiebreaker);
     }
 }
@@ -1,21 +1,25 @@
 package com.undo.coursesearch.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.dto.CourseChangeDto;
+import com.undo.coursesearch.limit.AdaptiveLimiter;
+import com.undo.coursesearch.limit.ElasticsearchBulkheads;
+import com.undo.coursesearch.limit.OverloadedException;
 import com.undo.coursesearch.repository.CourseRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.context.event.ApplicationReadyEvent;
-import org.springframework.context.event.EventListener;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
-
-import org.springframework.core.annotation.Order;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -23,55 +27,50 @@ import org.springframework.core.annotation.Order;
 public class DataIndexingService {
 
     private final CourseRepository courseRepository;
-    private final ObjectMapper objectMapper;
-
-    @EventListener(ApplicationReadyEvent.class)
-    @Order(2) // Run after index initialization
-    public void indexSampleData() {
+    private final BulkIndexer bulkIndexer;
+    private final CourseChangeIndexer courseChangeIndexer;
+    private final CourseIndexManager courseIndexManager;
+    private final IndexGeneration indexGeneration;
+    private final ElasticsearchBulkheads bulkheads;
+    // The suggestion index and the in-memory search engine
+    private final List<CourseIndexListener> indexListeners;
+
+    private static final int LOCAL_INDEX_REBUILD_BATCH_SIZE = 1000;
+
+    private final ReentrantLock reindexLock = new ReentrantLock();
+
+    // Applies loads and change batches one at a time, and keeps them out of a running reindex
+    private final ReentrantLock changesLock = new ReentrantLock();
+
+    @Value("${app.data.sample-file:classpath:sample-courses.json}")
+    private Resource sampleFile;
+
+    // Courses that may fail to load before a reindex is abandoned instead of swapped in
+    @Value("${app.indexing.reindex.max-failures:0}")
+    private long maxReindexFailures;
+
+    /**
+     * Loads the sample file into a new index generation, or only rebuilds the local
+     * indexes when the index already has data. Runs in the background at startup,
+     * see {@link com.undo.coursesearch.startup.StartupIndexing}.
+     *
+     * @param progress receives the number of courses loaded by each batch
+     */
+    public void indexSampleData(LongConsumer progress) {
         try {
             log.info("Starting to index sample course data...");
 
             // Check if data already exists
-            long count = courseRepository.count();
+            Optional<String> currentIndex = courseIndexManager.currentIndex();
+            long count = currentIndex.isPresent() ? courseRepository.count() : 0;
             if (count > 0) {
-                log.info("Data already exists in index. Count: {}. Skipping initial data load.", count);
+                log.info("Data already exists in index {}. Count: {}. Skipping initial data load.",
+                        currentIndex.get(), count);
+                rebuildLocalIndexes(progress);
                 return;
             }
 
-            List<CourseDocument> courses = loadSampleData();
-            log.info("Loaded {} courses from JSON file", courses.size());
-
-            // Initialize suggest fields for each course and log a sample
-            courses.forEach(course -> {
-                course.initializeSuggestFields();
-                if (course.getId().equals("1")) {
-                    log.info("Sample course data: ID={}, Title={}, NextSessionDate={}",
-                            course.getId(), course.getTitle(), course.getNextSessionDate());
-                }
-            });
-
-            // Bulk index the data
-            try {
-                Iterable<CourseDocument> savedCourses = courseRepository.saveAll(courses);
-                long savedCount = courseRepository.count();
-                log.info("Successfully indexed {} courses", savedCount);
-            } catch (Exception e) {
-                log.error("Failed to bulk index courses. Error: {}", e.getMessage());
-
-                // Try indexing one by one to identify problematic documents
-                log.info("Attempting to index documents individually...");
-                int successCount = 0;
-                for (CourseDocument course : courses) {
-                    try {
-                        courseRepository.save(course);
-                        successCount++;
-                    } catch (Exception individualError) {
-                        log.error("Failed to index course ID {}: {}", course.getId(), individualError.getMessage());
-                        log.error("Problematic course data: {}", course);
-                    }
-                }
-                log.info("Successfully indexed {} out of {} courses individually", successCount, courses.size());
-            }
+            reindexData(false, progress);
 
         } catch (Exception e) {
             log.error("Failed to index sample data", e);
@@ -79,27 +78,156 @@ public class DataIndexingService {
         }
     }
 
-    private List<CourseDocument> loadSampleData() throws IOException {
-        ClassPathResource resource = new ClassPathResource("sample-courses.json");
+    /**
+     * Streams a JSON array of courses into the index. Failed documents are reported
+     * in the result rather than retried. Like change batches, loads are rejected
+     * while a reindex runs, and a reindex waits for a load in flight.
+     */
+    public BulkIndexer.BulkIndexingResult loadCourses(InputStream inputStream) throws IOException {
+        if (reindexLock.isLocked()) {
+            throw new IllegalStateException("A reindex is in progress");
+        }
+
+        changesLock.lock();
+        try {
+            BulkIndexer.BulkIndexingResult result = bulkheads.call(ElasticsearchBulkheads.Bulkhead.ADMIN,
+                    () -> bulkIndexer.index(inputStream, courseIndexManager.alias(),
+                            courses -> indexListeners.forEach(listener -> listener.index(courses))));
+            if (result.indexed() > 0) {
+                indexGeneration.bump();
+            }
+            return result;
+        } finally {
+            changesLock.unlock();
+        }
+    }
+
+    /**
+     * Applies a batch of versioned upserts, partial updates and deletes to the live
+     * index. Batches wait for each other, but are rejected while a reindex runs,
+     * as the new generation would not contain them.
+     */
+    public CourseChangeIndexer.CourseChangeResult applyChanges(List<CourseChangeDto> changes) throws IOException {
+        if (reindexLock.isLocked()) {
+            throw new IllegalStateException("A reindex is in progress");
+        }
 
-        try (InputStream inputStream = resource.getInputStream()) {
-            return objectMapper.readValue(inputStream, new TypeReference<List<CourseDocument>>() {});
+        changesLock.lock();
+        try {
+            CourseChangeIndexer.CourseChangeResult result = bulkheads.call(ElasticsearchBulkheads.Bulkhead.ADMIN,
+                    () -> courseChangeIndexer.apply(changes,
+                            courseIndexManager.alias(),
+                            courses -> indexListeners.forEach(listener -> listener.index(courses)),
+                            ids -> indexListeners.forEach(listener -> listener.remove(ids))));
+            if (result.applied() > 0) {
+                indexGeneration.bump();
+            }
+            return result;
+        } finally {
+            changesLock.unlock();
         }
     }
 
+    private void rebuildLocalIndexes(LongConsumer progress) {
+        indexListeners.forEach(CourseIndexListener::clear);
+
+        List<CourseDocument> batch = new ArrayList<>(LOCAL_INDEX_REBUILD_BATCH_SIZE);
+        try (Stream<CourseDocument> courses = courseRepository.streamAllBy()) {
+            courses.forEach(course -> {
+                batch.add(course);
+                if (batch.size() == LOCAL_INDEX_REBUILD_BATCH_SIZE) {
+                    indexListeners.forEach(listener -> listener.index(batch));
+                    progress.accept(batch.size());
+                    batch.clear();
+                }
+            });
+        }
+        indexListeners.forEach(listener -> listener.index(batch));
+        progress.accept(batch.size());
+        indexListeners.forEach(CourseIndexListener::markReady);
+    }
+
     public void reindexData() {
+        reindexData(false);
+    }
+
+    /**
+     * Builds a new index generation and swaps the alias to it once it is complete,
+     * so searches never observe a partially loaded index. A load that indexes
+     * nothing, or more than {@code app.indexing.reindex.max-failures} failed courses,
+     * drops the new generation and leaves the alias and older generations alone. The whole reindex holds a
+     * slot of the ADMIN bulkhead, and is rejected with {@code OverloadedException}
+     * when there is none.
+     *
+     * @param fromCurrentIndex copy the live index with a sliced {@code _reindex}
+     *                         instead of reloading the sample file
+     */
+    public void reindexData(boolean fromCurrentIndex) {
+        reindexData(fromCurrentIndex, count -> {});
+    }
+
+    private void reindexData(boolean fromCurrentIndex, LongConsumer progress) {
+        if (!reindexLock.tryLock()) {
+            throw new IllegalStateException("A reindex is already in progress");
+        }
+
+        // Kept for the bulk load or _reindex copy, the forcemerge and the alias swap alike
+        AdaptiveLimiter.Permit permit;
+        try {
+            permit = bulkheads.hold(ElasticsearchBulkheads.Bulkhead.ADMIN);
+        } catch (OverloadedException e) {
+            reindexLock.unlock();
+            throw e;
+        }
+
+        // Waits for a change batch in flight; later ones block until the new generation is live
+        changesLock.lock();
+
+        String target = null;
+        boolean swapped = false;
         try {
             log.info("Reindexing all course data...");
 
-            // Delete all existing data
-            courseRepository.deleteAll();
+            Optional<String> source = courseIndexManager.currentIndex();
+            target = courseIndexManager.createGeneration();
+
+            long loaded;
+            if (fromCurrentIndex && source.isPresent()) {
+                loaded = courseIndexManager.copy(source.get(), target);
+            } else {
+                BulkIndexer.BulkIndexingResult result;
+                try (InputStream inputStream = sampleFile.getInputStream()) {
+                    result = bulkIndexer.index(inputStream, target, courses -> progress.accept(courses.size()));
+                }
+                if (result.failed() > maxReindexFailures) {
+                    throw new IllegalStateException(result.failed() + " of " + result.submitted()
+                            + " courses failed to load into " + target);
+                }
+                loaded = result.indexed();
+            }
+            // The live generation stays in place rather than being replaced by an empty one
+            if (loaded == 0) {
+                throw new IllegalStateException("No courses were loaded into " + target);
+            }
+
+            courseIndexManager.finalizeGeneration(target);
+            courseIndexManager.swapAlias(target);
+            swapped = true;
+            indexGeneration.bump();
 
-            // Reload and index fresh data
-            indexSampleData();
+            rebuildLocalIndexes(count -> {});
+            courseIndexManager.deleteOldGenerations();
 
         } catch (Exception e) {
+            if (target != null && !swapped) {
+                courseIndexManager.deleteGeneration(target);
+            }
             log.error("Failed to reindex data", e);
             throw new RuntimeException("Failed to reindex data", e);
+        } finally {
+            changesLock.unlock();
+            permit.ignore();
+            reindexLock.unlock();
         }
     }
-}
\ No newline at end of file
+}
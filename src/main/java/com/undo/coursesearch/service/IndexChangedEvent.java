@@ -0,0 +1,7 @@
+package com.undo.coursesearch.service;
+
+/**
+ * Published by {@link IndexGeneration} whenever the courses index has been written to.
+ */
+public record IndexChangedEvent(long generation) {
+}
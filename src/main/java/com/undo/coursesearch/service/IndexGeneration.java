@@ -0,0 +1,33 @@
+package com.undo.coursesearch.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic counter of writes to the courses index. Every component that changes
+ * indexed data bumps it, and anything derived from the index (caches, snapshots)
+ * listens for the resulting {@link IndexChangedEvent}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IndexGeneration {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final AtomicLong generation = new AtomicLong();
+
+    public long current() {
+        return generation.get();
+    }
+
+    public long bump() {
+        long next = generation.incrementAndGet();
+        log.debug("Index generation bumped to {}", next);
+        eventPublisher.publishEvent(new IndexChangedEvent(next));
+        return next;
+    }
+}
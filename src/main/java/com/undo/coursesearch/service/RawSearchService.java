@@ -0,0 +1,230 @@
+package com.undo.coursesearch.service;
+
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.json.JsonpMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undo.coursesearch.document.EpochMillis;
+import com.undo.coursesearch.dto.SearchRequestDto;
+import com.undo.coursesearch.dto.SearchResponseDto;
+import com.undo.coursesearch.limit.ElasticsearchBulkheads;
+import com.undo.coursesearch.limit.OverloadedException;
+import com.undo.coursesearch.metrics.SearchMetrics;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * High-throughput variant of {@link CourseSearchService#searchCourses}: the hits'
+ * {@code _source} bytes are copied token by token from the Elasticsearch response
+ * into the HTTP response, without materializing {@code CourseDocument} or
+ * {@code CourseDto}. The output has the same shape as {@code SearchResponseDto}.
+ *
+ * Runs in two steps so that Elasticsearch errors surface before the response is
+ * committed: {@link #execute} sends the request, {@link #write} streams the result.
+ */
+@Slf4j
+@Service
+public class RawSearchService {
+
+    // Only what is written out; everything else is dropped by Elasticsearch
+    private static final String FILTER_PATH = "took,hits.total,hits.hits._source";
+    private static final String NEXT_SESSION_DATE = "nextSessionDate";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private final CourseSearchService courseSearchService;
+    private final RestClient restClient;
+    private final JsonpMapper jsonpMapper;
+    private final JsonFactory jsonFactory;
+    private final ElasticsearchBulkheads bulkheads;
+    private final SearchMetrics searchMetrics;
+
+    public RawSearchService(CourseSearchService courseSearchService,
+                            RestClient elasticsearchRestClient,
+                            JsonpMapper jsonpMapper,
+                            ObjectMapper objectMapper,
+                            ElasticsearchBulkheads bulkheads,
+                            SearchMetrics searchMetrics) {
+        this.courseSearchService = courseSearchService;
+        this.restClient = elasticsearchRestClient;
+        this.jsonpMapper = jsonpMapper;
+        this.jsonFactory = objectMapper.getFactory();
+        this.bulkheads = bulkheads;
+        this.searchMetrics = searchMetrics;
+    }
+
+    public Response execute(SearchRequestDto request) {
+        if (request.hasCursor() || request.isFacets()) {
+            throw new IllegalArgumentException("Cursor pagination and facets are not supported in raw searches");
+        }
+        CourseSearchService.validateRequest(request);
+
+        Tags tags = searchMetrics.searchTags(request);
+        SearchRequest searchRequest = searchMetrics.time(SearchMetrics.BUILD_QUERY, tags,
+                () -> courseSearchService.buildSearchRequest(request));
+
+        Request esRequest = new Request("POST", "/" + String.join(",", searchRequest.index()) + "/_search");
+        esRequest.addParameter("filter_path", FILTER_PATH);
+        if (Boolean.TRUE.equals(searchRequest.requestCache())) {
+            esRequest.addParameter("request_cache", "true");
+        }
+        esRequest.setEntity(new ByteArrayEntity(toJson(searchRequest), ContentType.APPLICATION_JSON));
+
+        long start = System.nanoTime();
+        Response response = null;
+        try {
+            response = bulkheads.call(ElasticsearchBulkheads.Bulkhead.SEARCH, () -> restClient.performRequest(esRequest));
+            return response;
+        } catch (OverloadedException e) {
+            throw e;
+        } catch (IOException e) {
+            log.error("Error searching courses", e);
+            throw new RuntimeException("Failed to search courses", e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            searchMetrics.record(SearchMetrics.ELASTICSEARCH, tags, elapsed);
+            // The body is streamed later, so took and hits are not known here
+            searchMetrics.logQuery(tags, searchRequest, response, elapsed);
+        }
+    }
+
+    public void write(SearchRequestDto request, Response response, OutputStream out) throws IOException {
+        Tags tags = searchMetrics.searchTags(request);
+        long start = System.nanoTime();
+
+        try (InputStream in = response.getEntity().getContent();
+             JsonParser parser = jsonFactory.createParser(in);
+             JsonGenerator generator = jsonFactory.createGenerator(out)) {
+
+            // The servlet stream is closed by the container
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            boolean headerWritten = false;
+            boolean coursesWritten = false;
+
+            generator.writeStartObject();
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+
+                if ("took".equals(field)) {
+                    searchMetrics.recordTook(tags, parser.getLongValue());
+                } else if ("hits".equals(field)) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String hitsField = parser.currentName();
+                        parser.nextToken();
+
+                        if ("total".equals(hitsField)) {
+                            TotalHits total = readTotal(parser);
+                            writeHeader(generator, request, total.value(), total.relation());
+                            headerWritten = true;
+                        } else if ("hits".equals(hitsField)) {
+                            generator.writeArrayFieldStart("courses");
+                            copySources(parser, generator);
+                            generator.writeEndArray();
+                            coursesWritten = true;
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            // filter_path drops empty arrays, and the total if tracking was disabled
+            if (!headerWritten) {
+                long total = request.skipsTotalCount() ? request.getKnownTotal() : 0;
+                writeHeader(generator, request, total, courseSearchService.knownTotalRelation(total));
+            }
+            if (!coursesWritten) {
+                generator.writeArrayFieldStart("courses");
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        } finally {
+            searchMetrics.record(SearchMetrics.PASSTHROUGH, tags, System.nanoTime() - start);
+        }
+    }
+
+    private static TotalHits readTotal(JsonParser parser) throws IOException {
+        long total = 0;
+        String relation = SearchResponseDto.TOTAL_EXACT;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("value".equals(field)) {
+                total = parser.getLongValue();
+            } else if ("relation".equals(field)) {
+                relation = parser.getText();
+            }
+        }
+        return new TotalHits(total, relation);
+    }
+
+    private static void copySources(JsonParser parser, JsonGenerator generator) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("_source".equals(field)) {
+                    copySource(parser, generator);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    // Field by field, to render the epoch-millis nextSessionDate as the ISO date-time CourseDto has
+    private static void copySource(JsonParser parser, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            generator.writeFieldName(field);
+            parser.nextToken();
+            if (NEXT_SESSION_DATE.equals(field) && parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+                generator.writeString(DATE_FORMAT.format(EpochMillis.toLocalDateTime(parser.getLongValue())));
+            } else {
+                generator.copyCurrentStructure(parser);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeHeader(JsonGenerator generator, SearchRequestDto request, long total, String relation)
+            throws IOException {
+        generator.writeNumberField("total", total);
+        generator.writeStringField("totalRelation", relation);
+        generator.writeNumberField("page", request.getPage());
+        generator.writeNumberField("size", request.getSize());
+        generator.writeNumberField("totalPages",
+                request.getSize() > 0 ? (int) Math.ceil((double) total / request.getSize()) : 0);
+    }
+
+    private record TotalHits(long value, String relation) {
+    }
+
+    private byte[] toJson(SearchRequest searchRequest) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (jakarta.json.stream.JsonGenerator generator = jsonpMapper.jsonProvider().createGenerator(body)) {
+            searchRequest.serialize(generator, jsonpMapper);
+        }
+        return body.toByteArray();
+    }
+}
@@ -0,0 +1,61 @@
+package com.undo.coursesearch.service;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque continuation token for cursor-mode searches: the point-in-time id, the
+ * sort values of the last hit returned, and the total and page number established
+ * by the first page so later pages don't have to count again.
+ */
+record SearchCursor(String pit, List<Object> after, long total, int page) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static SearchCursor of(String pit, List<FieldValue> sortValues, long total, int page) {
+        List<Object> after = new ArrayList<>(sortValues.size());
+        for (FieldValue value : sortValues) {
+            after.add(value.isNull() ? null : value._get());
+        }
+        return new SearchCursor(pit, after, total, page);
+    }
+
+    static SearchCursor decode(String token) {
+        try {
+            return MAPPER.readValue(Base64.getUrlDecoder().decode(token), SearchCursor.class);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid search cursor", e);
+        }
+    }
+
+    String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(this));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode search cursor", e);
+        }
+    }
+
+    List<FieldValue> searchAfter() {
+        List<FieldValue> values = new ArrayList<>(after.size());
+        for (Object value : after) {
+            if (value == null) {
+                values.add(FieldValue.NULL);
+            } else if (value instanceof Double || value instanceof Float) {
+                values.add(FieldValue.of(((Number) value).doubleValue()));
+            } else if (value instanceof Number number) {
+                values.add(FieldValue.of(number.longValue()));
+            } else if (value instanceof Boolean bool) {
+                values.add(FieldValue.of(bool));
+            } else {
+                values.add(FieldValue.of(value.toString()));
+            }
+        }
+        return values;
+    }
+}
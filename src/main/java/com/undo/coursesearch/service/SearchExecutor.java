@@ -0,0 +1,77 @@
+package com.undo.coursesearch.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Selects how search and suggest requests are executed, via
+ * {@code app.search.execution-mode}:
+ * <ul>
+ *     <li>{@code blocking} - on the servlet worker thread (default)</li>
+ *     <li>{@code async} - on the non-blocking {@code ElasticsearchAsyncClient}; the worker
+ *     thread is released while the request is in flight</li>
+ *     <li>{@code virtual-threads} - the blocking path on a virtual thread per request;
+ *     requires a Java 21+ runtime</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class SearchExecutor {
+
+    public enum Mode {
+        BLOCKING,
+        ASYNC,
+        VIRTUAL_THREADS
+    }
+
+    private final Mode mode;
+    private final ExecutorService executor;
+
+    public SearchExecutor(@Value("${app.search.execution-mode:blocking}") Mode mode) {
+        this.mode = mode;
+        this.executor = mode == Mode.VIRTUAL_THREADS ? newVirtualThreadPerTaskExecutor() : null;
+        log.info("Search execution mode: {}", mode);
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * Runs a blocking task according to the mode: on a virtual thread, or inline
+     * for {@code blocking} and {@code async} callers that have no async path.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        if (executor != null) {
+            return CompletableFuture.supplyAsync(task, executor);
+        }
+        try {
+            return CompletableFuture.completedFuture(task.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    // Looked up reflectively because the project still compiles for Java 17
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("app.search.execution-mode=virtual-threads requires Java 21 or later", e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.undo.coursesearch.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undo.coursesearch.dto.SearchRequestDto;
+import com.undo.coursesearch.service.CourseSearchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Replays representative searches and suggestions before the app reports ready, so
+ * the first real requests find loaded and initialized code paths, open connections
+ * and populated Elasticsearch and result caches. The queries come from
+ * {@code app.startup.warmup.file}:
+ * <pre>
+ * {"searches": [{"q": "math"}, {"category": "Science", "sort": "priceAsc"}],
+ *  "suggestions": ["ma", "sci"]}
+ * </pre>
+ * Failures are logged and skipped; a slow or partly failing warmup never keeps the
+ * app from becoming ready after {@code app.startup.warmup.timeout}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SearchWarmup {
+
+    private final CourseSearchService courseSearchService;
+    private final ObjectMapper objectMapper;
+    private final StartupHealthIndicator startupHealth;
+
+    @Value("${app.startup.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.startup.warmup.file:classpath:warmup-queries.json}")
+    private Resource file;
+
+    @Value("${app.startup.warmup.timeout:60s}")
+    private Duration timeout;
+
+    record WarmupQueries(List<SearchRequestDto> searches, List<String> suggestions) {
+
+        WarmupQueries {
+            searches = searches != null ? searches : List.of();
+            suggestions = suggestions != null ? suggestions : List.of();
+        }
+    }
+
+    /**
+     * @return the number of queries that completed without an error
+     */
+    public int run() {
+        if (!enabled) {
+            return 0;
+        }
+
+        WarmupQueries queries;
+        try (InputStream in = file.getInputStream()) {
+            queries = objectMapper.readValue(in, WarmupQueries.class);
+        } catch (IOException e) {
+            log.warn("Skipping warmup, cannot read {}", file, e);
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        int succeeded = 0;
+        int failed = 0;
+        for (SearchRequestDto search : queries.searches()) {
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+            if (warm(() -> courseSearchService.searchCourses(search), search)) {
+                succeeded++;
+            } else {
+                failed++;
+            }
+        }
+        for (String prefix : queries.suggestions()) {
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+            if (warm(() -> courseSearchService.getSuggestions(prefix), prefix)) {
+                succeeded++;
+            } else {
+                failed++;
+            }
+        }
+
+        log.info("Warmup ran {} queries ({} failed) in {} ms", succeeded + failed, failed,
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return succeeded;
+    }
+
+    private boolean warm(Runnable query, Object description) {
+        try {
+            query.run();
+            startupHealth.warmupQueryRun();
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Warmup query {} failed: {}", description, e.getMessage());
+            return false;
+        }
+    }
+}
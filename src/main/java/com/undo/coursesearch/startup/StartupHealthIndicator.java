@@ -0,0 +1,77 @@
+package com.undo.coursesearch.startup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of the background startup work, reported as the {@code startup} health
+ * component. It is part of the readiness group, so
+ * {@code /actuator/health/readiness} stays {@code OUT_OF_SERVICE} until the data is
+ * loaded and the warmup queries have run.
+ */
+@Component
+public class StartupHealthIndicator implements HealthIndicator {
+
+    public enum Phase {
+        STARTING, INDEXING, WARMING_UP, READY
+    }
+
+    private volatile Phase phase = Phase.STARTING;
+    private volatile String lastError;
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicInteger warmupQueries = new AtomicInteger();
+
+    @Override
+    public Health health() {
+        Health.Builder builder = phase == Phase.READY ? Health.up() : Health.outOfService();
+        builder.withDetail("phase", phase)
+                .withDetail("attempts", attempts.get())
+                .withDetail("indexed", indexed.get())
+                .withDetail("warmupQueries", warmupQueries.get());
+        if (lastError != null) {
+            builder.withDetail("lastError", lastError);
+        }
+        return builder.build();
+    }
+
+    public Phase phase() {
+        return phase;
+    }
+
+    public boolean isReady() {
+        return phase == Phase.READY;
+    }
+
+    void indexing() {
+        attempts.incrementAndGet();
+        indexed.set(0);
+        phase = Phase.INDEXING;
+    }
+
+    void indexed(long count) {
+        indexed.addAndGet(count);
+    }
+
+    void failed(Exception e) {
+        lastError = e.getMessage();
+        phase = Phase.STARTING;
+    }
+
+    void warmingUp() {
+        phase = Phase.WARMING_UP;
+    }
+
+    void warmupQueryRun() {
+        warmupQueries.incrementAndGet();
+    }
+
+    void ready() {
+        lastError = null;
+        phase = Phase.READY;
+    }
+}
@@ -0,0 +1,78 @@
+package com.undo.coursesearch.startup;
+
+import com.undo.coursesearch.service.CourseIndexManager;
+import com.undo.coursesearch.service.DataIndexingService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Installs the index template, loads the initial data and runs the warmup on a
+ * background thread, so startup does not wait for Elasticsearch. Progress is reported
+ * through {@link StartupHealthIndicator}; until it is ready the readiness probe keeps
+ * the instance out of the load balancer. Failed loads, e.g. while Elasticsearch is
+ * still coming up, are retried every {@code app.startup.retry-interval}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StartupIndexing {
+
+    private final CourseIndexManager courseIndexManager;
+    private final DataIndexingService dataIndexingService;
+    private final SearchWarmup searchWarmup;
+    private final StartupHealthIndicator startupHealth;
+
+    @Value("${app.startup.retry-interval:10s}")
+    private Duration retryInterval;
+
+    private volatile Thread worker;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker = new Thread(this::run, "startup-indexing");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            startupHealth.indexing();
+            try {
+                courseIndexManager.putIndexTemplate();
+                dataIndexingService.indexSampleData(startupHealth::indexed);
+                break;
+            } catch (Exception e) {
+                startupHealth.failed(e);
+                log.warn("Startup indexing failed, retrying in {}", retryInterval, e);
+                try {
+                    Thread.sleep(retryInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+
+        startupHealth.warmingUp();
+        searchWarmup.run();
+        startupHealth.ready();
+        log.info("Startup complete, ready for traffic");
+    }
+}
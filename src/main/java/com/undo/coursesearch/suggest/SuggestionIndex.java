@@ -0,0 +1,367 @@
+package com.undo.coursesearch.suggest;
+
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.service.CourseIndexListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process prefix index over the {@link CourseDocument.CompletionSuggest} inputs,
+ * serving autocomplete without an Elasticsearch round trip.
+ *
+ * Every trie node keeps its top-k suggestions precomputed, so a lookup is a walk of
+ * the prefix length followed by a list copy. Writes only recompute the nodes on the
+ * paths they touched, and removals detach the nodes they leave empty, so the trie
+ * only ever holds the prefixes of current inputs.
+ */
+@Slf4j
+@Component
+public class SuggestionIndex implements CourseIndexListener {
+
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingInt(Suggestion::weight).reversed()
+            .thenComparing(Suggestion::text);
+
+    private final boolean enabled;
+    private final int topK;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> entriesById = new HashMap<>();
+
+    private Node root = new Node(0);
+    private volatile boolean ready;
+
+    public SuggestionIndex(@Value("${app.search.suggest.local-index.enabled:true}") boolean enabled,
+                           @Value("${app.search.suggest.local-index.top-k:10}") int topK) {
+        this.enabled = enabled;
+        this.topK = topK;
+    }
+
+    /**
+     * True once the index mirrors the whole courses index; until then callers
+     * should fall back to the Elasticsearch completion suggester.
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Override
+    public void markReady() {
+        if (enabled) {
+            ready = true;
+            log.info("Local suggestion index ready with {} courses", size());
+        }
+    }
+
+    public List<String> suggest(String prefix, int limit) {
+        String key = prefix.trim().toLowerCase(Locale.ROOT);
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+
+            List<Suggestion> best = node.topK;
+            List<String> suggestions = new ArrayList<>(Math.min(limit, best.size()));
+            for (int i = 0; i < best.size() && i < limit; i++) {
+                suggestions.add(best.get(i).text());
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces the given courses. Courses without suggest fields are ignored.
+     */
+    @Override
+    public void index(Collection<CourseDocument> courses) {
+        if (!enabled || courses.isEmpty()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Set<Node> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (CourseDocument course : courses) {
+                Entry entry = toEntry(course);
+                if (entry != null && entry.equals(entriesById.get(course.getId()))) {
+                    // Same suggestion, e.g. only the price or session date changed
+                    continue;
+                }
+                removeEntry(course.getId(), dirty);
+                if (entry != null) {
+                    addEntry(course.getId(), entry, dirty);
+                }
+            }
+            recompute(dirty);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Collection<String> ids) {
+        if (!enabled || ids.isEmpty()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Set<Node> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+            ids.forEach(id -> removeEntry(id, dirty));
+            recompute(dirty);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops all entries and marks the index as not ready until it is repopulated.
+     */
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            entriesById.clear();
+            root = new Node(0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entriesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Entry toEntry(CourseDocument course) {
+        CourseDocument.CompletionSuggest suggest = course.getSuggest();
+        if (course.getId() == null || suggest == null || suggest.getInput() == null) {
+            return null;
+        }
+
+        String text = suggest.getOutput() != null ? suggest.getOutput() : course.getTitle();
+        if (text == null) {
+            return null;
+        }
+
+        Suggestion suggestion = new Suggestion(text, suggest.getWeight() != null ? suggest.getWeight() : 1);
+        List<String> inputs = suggest.getInput().stream()
+                .filter(input -> input != null && !input.isEmpty())
+                .map(input -> input.toLowerCase(Locale.ROOT))
+                .distinct()
+                .toList();
+        return new Entry(inputs, suggestion);
+    }
+
+    private void addEntry(String id, Entry entry, Set<Node> dirty) {
+        for (String input : entry.inputs()) {
+            Node node = root;
+            dirty.add(node);
+            for (int i = 0; i < input.length(); i++) {
+                node = node.getOrAddChild(input.charAt(i));
+                dirty.add(node);
+            }
+            node.addTerminal(id, entry.suggestion());
+        }
+        entriesById.put(id, entry);
+    }
+
+    private void removeEntry(String id, Set<Node> dirty) {
+        Entry entry = id != null ? entriesById.remove(id) : null;
+        if (entry == null) {
+            return;
+        }
+
+        for (String input : entry.inputs()) {
+            Node[] path = new Node[input.length() + 1];
+            path[0] = root;
+            dirty.add(root);
+            for (int i = 0; i < input.length(); i++) {
+                path[i + 1] = path[i].child(input.charAt(i));
+                if (path[i + 1] == null) {
+                    break;
+                }
+                dirty.add(path[i + 1]);
+            }
+
+            Node node = path[input.length()];
+            if (node != null) {
+                node.removeTerminal(id);
+                prune(path, input, dirty);
+            }
+        }
+    }
+
+    // Detaches the nodes left without terminals or children, from the end of the path up
+    private static void prune(Node[] path, String input, Set<Node> dirty) {
+        for (int i = input.length(); i > 0 && path[i].isEmpty(); i--) {
+            path[i - 1].removeChild(input.charAt(i - 1));
+            dirty.remove(path[i]);
+        }
+    }
+
+    // Trie size, for tests
+    int nodeCount() {
+        lock.readLock().lock();
+        try {
+            return root.count();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Children before parents, so every node merges already up-to-date child lists
+    private void recompute(Set<Node> dirty) {
+        List<Node> nodes = new ArrayList<>(dirty);
+        nodes.sort(Comparator.comparingInt((Node node) -> node.depth).reversed());
+        nodes.forEach(node -> node.recomputeTopK(topK));
+    }
+
+    public record Suggestion(String text, int weight) {
+    }
+
+    private record Entry(List<String> inputs, Suggestion suggestion) {
+    }
+
+    private static final class Node {
+
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private final int depth;
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private Map<String, Suggestion> terminals;
+        private List<Suggestion> topK = List.of();
+
+        private Node(int depth) {
+            this.depth = depth;
+        }
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node getOrAddChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            int insertAt = -index - 1;
+            Node child = new Node(depth + 1);
+
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = child;
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        private void removeChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index < 0) {
+                return;
+            }
+            if (keys.length == 1) {
+                keys = NO_KEYS;
+                children = NO_CHILDREN;
+                return;
+            }
+
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        private boolean isEmpty() {
+            return terminals == null && children.length == 0;
+        }
+
+        private int count() {
+            int count = 1;
+            for (Node child : children) {
+                count += child.count();
+            }
+            return count;
+        }
+
+        private void addTerminal(String id, Suggestion suggestion) {
+            if (terminals == null) {
+                terminals = new HashMap<>(2);
+            }
+            terminals.put(id, suggestion);
+        }
+
+        private void removeTerminal(String id) {
+            if (terminals != null) {
+                terminals.remove(id);
+                if (terminals.isEmpty()) {
+                    terminals = null;
+                }
+            }
+        }
+
+        // Distinct texts, keeping the highest weight, mirroring skip_duplicates
+        private void recomputeTopK(int k) {
+            Map<String, Suggestion> candidates = new LinkedHashMap<>();
+            if (terminals != null) {
+                terminals.values().forEach(suggestion -> candidates.merge(suggestion.text(), suggestion, Node::heavier));
+            }
+            for (Node child : children) {
+                child.topK.forEach(suggestion -> candidates.merge(suggestion.text(), suggestion, Node::heavier));
+            }
+
+            topK = candidates.values().stream()
+                    .sorted(RANKING)
+                    .limit(k)
+                    .toList();
+        }
+
+        private static Suggestion heavier(Suggestion a, Suggestion b) {
+            return a.weight() >= b.weight() ? a : b;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.undo.coursesearch.Controller;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undo.coursesearch.cache.SearchResultCache;
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.engine.InMemorySearchEngine;
+import com.undo.coursesearch.limit.AdaptiveLimiter;
+import com.undo.coursesearch.limit.ElasticsearchBulkheads;
+import com.undo.coursesearch.metrics.SearchMetrics;
+import com.undo.coursesearch.repository.CourseRepository;
+import com.undo.coursesearch.service.CourseSearchService;
+import com.undo.coursesearch.service.IndexGeneration;
+import com.undo.coursesearch.service.SearchExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class SearchControllerTest {
+
+    private final ElasticsearchClient elasticsearchClient = mock(ElasticsearchClient.class);
+    private AdaptiveLimiter.Permit heldSearchPermit;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        // A search bulkhead of one slot, taken for the whole test
+        ElasticsearchBulkheads bulkheads = new ElasticsearchBulkheads(new SimpleMeterRegistry(), Duration.ofMillis(500),
+                0.9, Duration.ofSeconds(2), 1, 1, 1, 10, 2, 100, 2, 2, 2, 4, 4, 4);
+        heldSearchPermit = bulkheads.hold(ElasticsearchBulkheads.Bulkhead.SEARCH);
+
+        // A ready fallback engine that could answer the search
+        InMemorySearchEngine engine = new InMemorySearchEngine(InMemorySearchEngine.Mode.FALLBACK, Duration.ofMinutes(1));
+        engine.index(List.of(CourseDocument.builder().id("7").title("Chemistry").category("Science").build()));
+        engine.markReady();
+
+        SearchResultCache cache = new SearchResultCache(new IndexGeneration(event -> {}), false, 100,
+                Duration.ofMinutes(1), Duration.ofMinutes(1));
+        SearchMetrics searchMetrics = new SearchMetrics(new SimpleMeterRegistry());
+        CourseSearchService courseSearchService = new CourseSearchService(mock(CourseRepository.class),
+                elasticsearchClient, null, new SearchExecutor(SearchExecutor.Mode.BLOCKING), cache, cache, null,
+                engine, bulkheads, searchMetrics);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new SearchController(courseSearchService, null, null, null,
+                cache, cache, searchMetrics, new ObjectMapper())).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        heldSearchPermit.ignore();
+    }
+
+    @Test
+    void testOverloadedSearchReturns503WithRetryAfter() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/search").param("category", "Science"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.error").value("Too many concurrent search requests, retry later"));
+        verifyNoInteractions(elasticsearchClient);
+    }
+}
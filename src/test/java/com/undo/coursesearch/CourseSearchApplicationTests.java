@@ -1,13 +1,28 @@
 package com.undo.coursesearch;
 
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.sniff.Sniffer;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 class CourseSearchApplicationTests {
 
+    @Autowired
+    private ApplicationContext context;
+
     @Test
     void contextLoads() {
     }
 
+    @Test
+    void testNoSnifferUnlessEnabled() {
+        assertEquals(1, context.getBeansOfType(RestClient.class).size());
+        assertTrue(context.getBeansOfType(Sniffer.class).isEmpty());
+    }
+
 }
@@ -0,0 +1,118 @@
+package com.undo.coursesearch.cache;
+
+import com.undo.coursesearch.dto.SearchRequestDto;
+import com.undo.coursesearch.dto.SearchResponseDto;
+import com.undo.coursesearch.service.IndexGeneration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTest {
+
+    private IndexGeneration indexGeneration;
+    private SearchResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        indexGeneration = new IndexGeneration(event -> {});
+        cache = new SearchResultCache(indexGeneration, true, 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+    }
+
+    @Test
+    void testEquivalentRequestsShareEntry() {
+        SearchRequestDto first = new SearchRequestDto();
+        first.setQ("Physics ");
+        first.setMinPrice(new BigDecimal("10.00"));
+        first.setStartDate(LocalDateTime.of(2025, 9, 1, 10, 15, 5));
+
+        SearchRequestDto second = new SearchRequestDto();
+        second.setQ("physics");
+        second.setMinPrice(new BigDecimal("10"));
+        second.setStartDate(LocalDateTime.of(2025, 9, 1, 10, 15, 40));
+
+        AtomicInteger calls = new AtomicInteger();
+        cache.get(first, () -> response(calls.incrementAndGet()));
+        SearchResponseDto cached = cache.get(second, () -> response(calls.incrementAndGet()));
+
+        assertEquals(1, calls.get());
+        assertEquals(1, cached.getTotal());
+        assertEquals(1L, cache.stats().get("hits"));
+        assertEquals(1L, cache.stats().get("misses"));
+    }
+
+    @Test
+    void testGenerationBumpInvalidates() {
+        SearchRequestDto request = new SearchRequestDto();
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get(request, () -> response(calls.incrementAndGet()));
+        indexGeneration.bump();
+        SearchResponseDto reloaded = cache.get(request, () -> response(calls.incrementAndGet()));
+
+        assertEquals(2, calls.get());
+        assertEquals(2, reloaded.getTotal());
+    }
+
+    @Test
+    void testConcurrentMissesCollapse() throws Exception {
+        SearchRequestDto request = new SearchRequestDto();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> cache.get(request, () -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    return response(1);
+                }));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testFailuresAreNotCached() {
+        SearchRequestDto request = new SearchRequestDto();
+
+        assertThrows(IllegalStateException.class, () -> cache.get(request, () -> {
+            throw new IllegalStateException("backend down");
+        }));
+        SearchResponseDto response = cache.get(request, () -> response(3));
+
+        assertEquals(3, response.getTotal());
+    }
+
+    private static SearchResponseDto response(long total) {
+        return SearchResponseDto.builder().total(total).build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.undo.coursesearch.document;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Test;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EpochMillisTest {
+
+    // 2025-09-03T13:54:46Z
+    private static final long MILLIS = 1_756_907_686_000L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testParsesEpochDigits() {
+        assertEquals(MILLIS, EpochMillis.parse("1756907686000"));
+        assertEquals(MILLIS, EpochMillis.parse(" 1756907686000 "));
+        assertEquals(0L, EpochMillis.parse("0"));
+    }
+
+    @Test
+    void testParsesZonedIsoDateTimes() {
+        assertEquals(MILLIS, EpochMillis.parse("2025-09-03T13:54:46Z"));
+        assertEquals(MILLIS, EpochMillis.parse("2025-09-03T15:54:46+02:00"));
+        assertEquals(MILLIS, EpochMillis.parse("2025-09-03T08:54:46-05:00"));
+        assertEquals(MILLIS + 250, EpochMillis.parse("2025-09-03T13:54:46.250Z"));
+    }
+
+    @Test
+    void testParsesLocalIsoDateTimesAsUtc() {
+        assertEquals(MILLIS, EpochMillis.parse("2025-09-03T13:54:46"));
+        assertEquals(MILLIS - 46_000, EpochMillis.parse("2025-09-03T13:54"));
+        assertEquals(LocalDateTime.of(2025, 9, 3, 13, 54, 46), EpochMillis.toLocalDateTime(MILLIS));
+        assertEquals(MILLIS, EpochMillis.of(LocalDateTime.of(2025, 9, 3, 13, 54, 46)));
+    }
+
+    @Test
+    void testRejectsMalformedInput() {
+        assertThrows(DateTimeException.class, () -> EpochMillis.parse("next tuesday"));
+        assertThrows(DateTimeException.class, () -> EpochMillis.parse("2025-09-03"));
+        assertThrows(DateTimeException.class, () -> EpochMillis.parse("2025-13-03T13:54:46"));
+        assertThrows(DateTimeException.class, () -> EpochMillis.parse("2025-09-03T13:54:46+25:00"));
+        assertThrows(DateTimeException.class, () -> EpochMillis.parse("-1756907686000"));
+        assertThrows(NumberFormatException.class, () -> EpochMillis.parse(""));
+        assertThrows(NumberFormatException.class, () -> EpochMillis.parse("99999999999999999999"));
+    }
+
+    @Test
+    void testDeserializesLegacyAndCompactDocuments() throws Exception {
+        CourseDocument legacy = objectMapper.readValue(
+                "{\"id\":\"1\",\"nextSessionDate\":\"2025-09-03T13:54:46\"}", CourseDocument.class);
+        CourseDocument compact = objectMapper.readValue(
+                "{\"id\":\"1\",\"nextSessionDate\":1756907686000}", CourseDocument.class);
+
+        assertEquals(MILLIS, legacy.getNextSessionDate());
+        assertEquals(MILLIS, compact.getNextSessionDate());
+        assertThrows(InvalidFormatException.class, () -> objectMapper.readValue(
+                "{\"id\":\"1\",\"nextSessionDate\":\"soon\"}", CourseDocument.class));
+    }
+
+    @Test
+    void testConverterReadsStoredValues() {
+        EpochMillis.Converter converter = new EpochMillis.Converter();
+
+        assertEquals(MILLIS, converter.read(MILLIS));
+        assertEquals(MILLIS, converter.read((double) MILLIS));
+        assertEquals(MILLIS, converter.read("2025-09-03T13:54:46"));
+        assertNull(converter.read(null));
+    }
+}
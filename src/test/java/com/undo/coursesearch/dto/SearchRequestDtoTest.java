@@ -0,0 +1,44 @@
+package com.undo.coursesearch.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchRequestDtoTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 9, 1, 10, 15, 7, 640_000_000);
+
+    @Test
+    void testStartDateIsRoundedDownToGranularity() {
+        SearchRequestDto request = new SearchRequestDto();
+        request.setStartDate(START);
+
+        assertEquals(LocalDateTime.of(2025, 9, 1, 10, 15), request.roundedStartDate(Duration.ofMinutes(1)));
+        assertEquals(LocalDateTime.of(2025, 9, 1, 10, 0), request.roundedStartDate(Duration.ofHours(1)));
+        assertEquals(LocalDateTime.of(2025, 9, 1, 10, 15, 7, 500_000_000), request.roundedStartDate(Duration.ofMillis(500)));
+    }
+
+    @Test
+    void testDegenerateGranularityLeavesStartDate() {
+        SearchRequestDto request = new SearchRequestDto();
+        request.setStartDate(START);
+
+        assertEquals(START, request.roundedStartDate(null));
+        assertEquals(START, request.roundedStartDate(Duration.ZERO));
+        assertEquals(START, request.roundedStartDate(Duration.ofNanos(500)));
+        assertEquals(START, request.roundedStartDate(Duration.ofMinutes(-1)));
+
+        assertNull(new SearchRequestDto().roundedStartDate(Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void testDatesBeforeTheEpochRoundDown() {
+        SearchRequestDto request = new SearchRequestDto();
+        request.setStartDate(LocalDateTime.of(1969, 12, 31, 23, 59, 30));
+
+        assertEquals(LocalDateTime.of(1969, 12, 31, 23, 59), request.roundedStartDate(Duration.ofMinutes(1)));
+    }
+}
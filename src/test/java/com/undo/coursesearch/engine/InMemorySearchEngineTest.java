@@ -0,0 +1,137 @@
+package com.undo.coursesearch.engine;
+
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.document.EpochMillis;
+import com.undo.coursesearch.dto.SearchRequestDto;
+import com.undo.coursesearch.dto.SearchResponseDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemorySearchEngineTest {
+
+    private InMemorySearchEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new InMemorySearchEngine(InMemorySearchEngine.Mode.PRIMARY, Duration.ofMinutes(1));
+        engine.index(List.of(
+                course("1", "Introduction to Physics", "Science", CourseDocument.CourseType.COURSE, 8, 12, "120.00", 10),
+                course("2", "Physics in Daily Life", "Science", CourseDocument.CourseType.CLUB, 12, 16, "45.50", 3),
+                course("3", "Photography Basics", "Art", CourseDocument.CourseType.ONE_TIME, 10, 14, "80.00", 5),
+                course("4", "Creative Writing Workshop", "Language", CourseDocument.CourseType.COURSE, 6, 9, null, 1)
+        ));
+        engine.markReady();
+    }
+
+    @Test
+    void testFuzzyTextSearchMatchesAnyTerm() {
+        SearchRequestDto request = new SearchRequestDto();
+        request.setQ("phisics");
+
+        assertEquals(List.of("2", "1"), ids(engine.search(request)));
+
+        request.setQ("writing photography");
+        assertEquals(List.of("4", "3"), ids(engine.search(request)));
+
+        // Two-letter terms must match exactly
+        request.setQ("lo");
+        assertEquals(0, engine.search(request).getTotal());
+    }
+
+    @Test
+    void testFiltersMatchElasticsearchSemantics() {
+        SearchRequestDto request = new SearchRequestDto();
+        request.setCategory("Science");
+        request.setMinAge(new BigDecimal("13"));
+        assertEquals(List.of("2"), ids(engine.search(request)));
+
+        request = new SearchRequestDto();
+        request.setMinPrice(new BigDecimal("50"));
+        request.setSort(SearchRequestDto.SortType.PRICE_DESC);
+        // Courses without a price never match a price range
+        assertEquals(List.of("1", "3"), ids(engine.search(request)));
+
+        request = new SearchRequestDto();
+        request.setType(CourseDocument.CourseType.COURSE);
+        request.setStartDate(LocalDateTime.of(2025, 9, 5, 0, 0));
+        assertEquals(List.of("1"), ids(engine.search(request)));
+    }
+
+    @Test
+    void testSortingPagingAndProjection() {
+        SearchRequestDto request = new SearchRequestDto();
+        request.setSort(SearchRequestDto.SortType.PRICE_ASC);
+        request.setSize(2);
+        request.setPage(1);
+        request.setView(SearchRequestDto.View.SUMMARY);
+
+        SearchResponseDto response = engine.search(request);
+
+        // Missing prices sort last
+        assertEquals(List.of("1", "4"), ids(response));
+        assertEquals(4, response.getTotal());
+        assertEquals(2, response.getTotalPages());
+        assertNull(response.getCourses().get(0).getDescription());
+        assertEquals(120.0, response.getCourses().get(0).getPrice());
+    }
+
+    @Test
+    void testServesOnlyPageModeSearchesOnceReady() {
+        SearchRequestDto request = new SearchRequestDto();
+        assertTrue(engine.serves(request));
+
+        request.setFacets(true);
+        assertFalse(engine.serves(request));
+
+        engine.clear();
+        assertFalse(engine.serves(new SearchRequestDto()));
+
+        InMemorySearchEngine fallback = new InMemorySearchEngine(InMemorySearchEngine.Mode.FALLBACK, Duration.ofMinutes(1));
+        fallback.markReady();
+        assertFalse(fallback.serves(new SearchRequestDto()));
+        assertTrue(fallback.canFallBack(new SearchRequestDto()));
+    }
+
+    @Test
+    void testReindexedCoursesReplaceOldOnes() {
+        engine.index(List.of(course("1", "Introduction to Chemistry", "Science",
+                CourseDocument.CourseType.COURSE, 8, 12, "120.00", 10)));
+        engine.remove(List.of("2"));
+
+        SearchRequestDto request = new SearchRequestDto();
+        request.setQ("physics");
+        assertEquals(0, engine.search(request).getTotal());
+
+        request.setQ("chemistry");
+        assertEquals(List.of("1"), ids(engine.search(request)));
+    }
+
+    private static List<String> ids(SearchResponseDto response) {
+        return response.getCourses().stream()
+                .map(SearchResponseDto.CourseDto::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static CourseDocument course(String id, String title, String category, CourseDocument.CourseType type,
+                                         int minAge, int maxAge, String price, int day) {
+        return CourseDocument.builder()
+                .id(id)
+                .title(title)
+                .description("Learn about " + title.toLowerCase() + " in this course.")
+                .category(category)
+                .type(type)
+                .minAge(minAge)
+                .maxAge(maxAge)
+                .price(price != null ? Double.valueOf(price) : null)
+                .nextSessionDate(EpochMillis.of(LocalDateTime.of(2025, 9, day, 10, 0)))
+                .build();
+    }
+}
@@ -0,0 +1,73 @@
+package com.undo.coursesearch.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimiterTest {
+
+    @Test
+    void testRejectsRequestsOverTheLimit() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 10, 1, TimeUnit.MINUTES, 0.5);
+
+        AdaptiveLimiter.Permit first = limiter.tryAcquire();
+        AdaptiveLimiter.Permit second = limiter.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(limiter.tryAcquire());
+
+        first.ignore();
+        assertEquals(1, limiter.inFlight());
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    void testGrowsOnlyWhileTheLimitIsUsed() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 5, 1, TimeUnit.MINUTES, 0.5);
+
+        // A lone request uses a quarter of the limit, which is no reason to raise it
+        limiter.tryAcquire().success();
+        assertEquals(4, limiter.limit());
+
+        List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            permits.add(limiter.tryAcquire());
+        }
+        permits.forEach(AdaptiveLimiter.Permit::success);
+
+        // Capped at the maximum
+        assertEquals(5, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void testBacksOffOnDropsAndSlowRequestsButNotBelowMinimum() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(8, 3, 10, 1, TimeUnit.MINUTES, 0.5);
+
+        limiter.tryAcquire().dropped();
+        assertEquals(4, limiter.limit());
+
+        limiter.tryAcquire().dropped();
+        assertEquals(3, limiter.limit());
+
+        AdaptiveLimiter slow = new AdaptiveLimiter(8, 1, 10, 0, TimeUnit.NANOSECONDS, 0.5);
+        slow.tryAcquire().success();
+        assertEquals(4, slow.limit());
+    }
+
+    @Test
+    void testReleasingTwiceCountsOnce() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(8, 1, 10, 1, TimeUnit.MINUTES, 0.5);
+
+        AdaptiveLimiter.Permit permit = limiter.tryAcquire();
+        permit.dropped();
+        permit.dropped();
+
+        assertEquals(0, limiter.inFlight());
+        assertEquals(4, limiter.limit());
+    }
+}
@@ -0,0 +1,128 @@
+package com.undo.coursesearch.metrics;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undo.coursesearch.document.CourseDocument;
+import io.micrometer.core.instrument.Tags;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryLogTest {
+
+    private static final long SLOW = Duration.ofMillis(800).toNanos();
+    private static final long FAST = Duration.ofMillis(20).toNanos();
+    private static final JacksonJsonpMapper JSONP_MAPPER = new JacksonJsonpMapper();
+
+    @Test
+    void testSlowQueriesAreAlwaysLoggedAndOthersSampled() {
+        QueryLog unsampled = new QueryLog(JSONP_MAPPER, true, Duration.ofMillis(500), 0);
+        assertEquals("slow", unsampled.classify(SLOW));
+        assertNull(unsampled.classify(FAST));
+
+        QueryLog sampleAll = new QueryLog(JSONP_MAPPER, true, Duration.ofMillis(500), 1);
+        assertEquals("slow", sampleAll.classify(SLOW));
+        assertEquals("sampled", sampleAll.classify(FAST));
+
+        QueryLog disabled = new QueryLog(JSONP_MAPPER, false, Duration.ofMillis(500), 1);
+        assertNull(disabled.classify(SLOW));
+    }
+
+    @Test
+    void testEntryIsOneJsonObjectWithQueryTookAndHits() throws Exception {
+        QueryLog queryLog = new QueryLog(JSONP_MAPPER, true, Duration.ofMillis(500), 0);
+        SearchRequest request = SearchRequest.of(s -> s
+                .index("courses")
+                .query(q -> q.term(t -> t.field("category").value("Science")))
+                .size(10));
+        SearchResponse<CourseDocument> response = SearchResponse.of(r -> r
+                .took(790)
+                .timedOut(false)
+                .shards(s -> s.total(1).successful(1).failed(0))
+                .hits(h -> h
+                        .total(t -> t.value(10000).relation(TotalHitsRelation.Gte))
+                        .hits(List.of())));
+
+        String entry = queryLog.render("slow", Tags.of("operation", "search", "sort", "upcoming"),
+                request, response, SLOW);
+
+        System.out.println("[DEBUG_LOG] Query log entry: " + entry);
+
+        assertFalse(entry.contains("\n"));
+        JsonNode json = new ObjectMapper().readTree(entry);
+        assertEquals("slow", json.get("kind").asText());
+        assertEquals("search", json.get("operation").asText());
+        assertEquals(800.0, json.get("elapsedMs").asDouble());
+        assertEquals(790, json.get("tookMs").asLong());
+        assertEquals(0, json.get("hits").asInt());
+        assertEquals(10000, json.get("totalHits").asLong());
+        assertEquals("gte", json.get("totalRelation").asText());
+        assertEquals("Science", json.at("/query/query/term/category/value").asText());
+
+        JsonNode failed = new ObjectMapper().readTree(queryLog.render("slow", Tags.empty(), request, null, SLOW));
+        assertTrue(failed.get("failed").asBoolean());
+    }
+
+    @Test
+    void testSlowBatchIsLoggedPerSearch() throws Exception {
+        QueryLog queryLog = new QueryLog(JSONP_MAPPER, true, Duration.ofMillis(500), 0);
+        MsearchRequest request = MsearchRequest.of(m -> m
+                .searches(s -> s
+                        .header(h -> h.index("courses"))
+                        .body(b -> b.query(q -> q.term(t -> t.field("category").value("Science")))))
+                .searches(s -> s
+                        .header(h -> h.index("courses"))
+                        .body(b -> b.query(q -> q.term(t -> t.field("category").value("Math"))))));
+        MsearchResponse<CourseDocument> response = MsearchResponse.of(r -> r
+                .took(790)
+                .responses(i -> i.result(res -> res
+                        .took(780)
+                        .timedOut(false)
+                        .status(200)
+                        .shards(s -> s.total(1).successful(1).failed(0))
+                        .hits(h -> h.total(t -> t.value(3).relation(TotalHitsRelation.Eq)).hits(List.of()))))
+                .responses(i -> i.failure(f -> f
+                        .status(400)
+                        .error(e -> e.type("search_phase_execution_exception").reason("failed")))));
+
+        Logger logger = (Logger) LoggerFactory.getLogger(QueryLog.LOGGER_NAME);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        try {
+            queryLog.recordBatch(List.of(Tags.of("operation", "msearch"), Tags.of("operation", "msearch")),
+                    request, response, FAST);
+            assertTrue(appender.list.isEmpty());
+
+            queryLog.recordBatch(List.of(Tags.of("operation", "msearch"), Tags.of("operation", "msearch")),
+                    request, response, SLOW);
+        } finally {
+            logger.detachAppender(appender);
+        }
+
+        assertEquals(2, appender.list.size());
+        JsonNode first = new ObjectMapper().readTree(appender.list.get(0).getFormattedMessage());
+        JsonNode second = new ObjectMapper().readTree(appender.list.get(1).getFormattedMessage());
+        assertEquals("msearch", first.get("operation").asText());
+        assertEquals(0, first.get("batchItem").asInt());
+        assertEquals(2, first.get("batchSize").asInt());
+        assertEquals(780, first.get("tookMs").asLong());
+        assertEquals("Science", first.at("/query/query/term/category/value").asText());
+        assertEquals(1, second.get("batchItem").asInt());
+        assertTrue(second.get("failed").asBoolean());
+        assertEquals("Math", second.at("/query/query/term/category/value").asText());
+    }
+}
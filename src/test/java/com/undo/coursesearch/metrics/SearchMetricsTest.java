@@ -0,0 +1,81 @@
+package com.undo.coursesearch.metrics;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.dto.SearchRequestDto;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.json.stream.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchMetricsTest {
+
+    private static final String RESPONSE = """
+            {"took": 7, "timed_out": false,
+             "_shards": {"total": 1, "successful": 1, "skipped": 0, "failed": 0},
+             "hits": {"total": {"value": 1, "relation": "eq"}, "max_score": null, "hits": [
+               {"_index": "courses_v1", "_id": "1", "_score": null,
+                "_source": {"id": "1", "title": "Intro to Physics", "price": 99.5}}
+             ]}}
+            """;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SearchMetrics searchMetrics = new SearchMetrics(registry);
+    private final JsonpMapper mapper = new TimedJsonpMapper(new ObjectMapper());
+
+    @Test
+    void testTagsDescribeSearchShape() {
+        SearchRequestDto request = new SearchRequestDto();
+        request.setQ("physics");
+        request.setMinPrice(new BigDecimal("10"));
+        request.setSort(SearchRequestDto.SortType.PRICE_ASC);
+
+        Tags tags = searchMetrics.searchTags(request);
+
+        assertEquals(Tags.of("operation", "search", "sort", "priceAsc", "text", "true",
+                "price", "true", "age", "false", "date", "false"), tags);
+    }
+
+    @Test
+    void testRoundTripRecordsDeserializationAndTook() throws Exception {
+        Tags tags = searchMetrics.suggestTags();
+
+        SearchResponse<CourseDocument> response = searchMetrics.timeRoundTrip(tags, null, () -> {
+            JsonParser parser = mapper.jsonProvider().createParser(new StringReader(RESPONSE));
+            return SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.<CourseDocument>of(CourseDocument.class))
+                    .deserialize(parser, mapper);
+        });
+
+        assertEquals("Intro to Physics", response.hits().hits().get(0).source().getTitle());
+
+        Timer deserialize = registry.get(SearchMetrics.STAGE_TIMER).tags(tags).tag("stage", SearchMetrics.DESERIALIZE).timer();
+        Timer roundTrip = registry.get(SearchMetrics.STAGE_TIMER).tags(tags).tag("stage", SearchMetrics.ELASTICSEARCH).timer();
+        Timer took = registry.get(SearchMetrics.TOOK_TIMER).tags(tags).timer();
+
+        assertTrue(deserialize.totalTime(TimeUnit.NANOSECONDS) > 0);
+        assertTrue(roundTrip.totalTime(TimeUnit.NANOSECONDS) >= deserialize.totalTime(TimeUnit.NANOSECONDS));
+        assertEquals(7, took.totalTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testStageTimersAreRegisteredOnce() {
+        SearchRequestDto request = new SearchRequestDto();
+        searchMetrics.record(SearchMetrics.MAP, searchMetrics.searchTags(request), 1_000);
+        searchMetrics.record(SearchMetrics.MAP, searchMetrics.searchTags(request), 3_000);
+
+        Timer map = registry.get(SearchMetrics.STAGE_TIMER).tag("stage", SearchMetrics.MAP).timer();
+        assertEquals(1, registry.find(SearchMetrics.STAGE_TIMER).timers().size());
+        assertEquals(2, map.count());
+        assertEquals(4_000, map.totalTime(TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,148 @@
+package com.undo.coursesearch.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.undo.coursesearch.document.CourseDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BulkIndexerTest {
+
+    private ElasticsearchTransport transport;
+    private BulkIndexer bulkIndexer;
+    private final List<String> sentIds = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> acknowledgedIds = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        // A real client over a mocked transport, as the BulkIngester builds its own async client from it.
+        // Courses whose id starts with "bad" are rejected by the stubbed cluster.
+        transport = mock(ElasticsearchTransport.class);
+        when(transport.jsonpMapper()).thenReturn(new JacksonJsonpMapper());
+        when(transport.performRequestAsync(any(), any(), any())).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            List<BulkResponseItem> items = request.operations().stream()
+                    .map(op -> op.index().id())
+                    .peek(sentIds::add)
+                    .map(id -> BulkResponseItem.of(i -> {
+                        i.operationType(OperationType.Index).index("courses_v2").id(id);
+                        return id.startsWith("bad")
+                                ? i.status(400).error(e -> e.type("document_parsing_exception").reason("failed to parse"))
+                                : i.status(201);
+                    }))
+                    .toList();
+            boolean errors = items.stream().anyMatch(item -> item.error() != null);
+            return CompletableFuture.completedFuture(BulkResponse.of(r -> r.errors(errors).took(1).items(items)));
+        });
+
+        bulkIndexer = new BulkIndexer(new ElasticsearchClient(transport), new ObjectMapper());
+        ReflectionTestUtils.setField(bulkIndexer, "maxActions", 50);
+        ReflectionTestUtils.setField(bulkIndexer, "maxSize", DataSize.ofMegabytes(5));
+        ReflectionTestUtils.setField(bulkIndexer, "concurrency", 1);
+        ReflectionTestUtils.setField(bulkIndexer, "flushIntervalSeconds", 5L);
+    }
+
+    @Test
+    void testFailedItemsAreReportedPerCourse() throws Exception {
+        BulkIndexer.BulkIndexingResult result = index(courses("1", "bad-2", "3", "bad-4"));
+
+        assertEquals(4, result.submitted());
+        assertEquals(2, result.indexed());
+        assertEquals(2, result.failed());
+        assertEquals(List.of(
+                new BulkIndexer.ItemFailure("bad-2", "document_parsing_exception: failed to parse"),
+                new BulkIndexer.ItemFailure("bad-4", "document_parsing_exception: failed to parse")
+        ), result.failures());
+        assertEquals(List.of("1", "3"), acknowledgedIds);
+    }
+
+    @Test
+    void testReportedFailuresAreCappedButAllAreCounted() throws Exception {
+        String[] ids = IntStream.range(0, 250).mapToObj(i -> "bad-" + i).toArray(String[]::new);
+
+        BulkIndexer.BulkIndexingResult result = index(courses(ids));
+
+        assertEquals(250, result.submitted());
+        assertEquals(0, result.indexed());
+        assertEquals(250, result.failed());
+        assertEquals(100, result.failures().size());
+        assertEquals("bad-0", result.failures().get(0).id());
+        assertEquals("bad-99", result.failures().get(99).id());
+        assertTrue(acknowledgedIds.isEmpty());
+    }
+
+    @Test
+    void testFailedRequestFailsAllOfItsCourses() throws Exception {
+        doReturn(CompletableFuture.failedFuture(new ConnectException("Connection refused")))
+                .when(transport).performRequestAsync(any(), any(), any());
+
+        BulkIndexer.BulkIndexingResult result = index(courses("1", "2", "3"));
+
+        assertEquals(3, result.submitted());
+        assertEquals(0, result.indexed());
+        assertEquals(3, result.failed());
+        assertEquals(List.of("1", "2", "3"), result.failures().stream().map(BulkIndexer.ItemFailure::id).toList());
+        assertTrue(result.failures().get(0).reason().contains("Connection refused"));
+    }
+
+    @Test
+    void testInputThatIsNotAnArrayIsRejected() {
+        IOException e = assertThrows(IOException.class, () -> index("{\"id\": \"1\"}"));
+
+        assertEquals("Expected a JSON array of courses", e.getMessage());
+        verify(transport, never()).performRequestAsync(any(), any(), any());
+    }
+
+    @Test
+    void testMalformedJsonStopsTheStreamAfterFlushingParsedCourses() {
+        assertThrows(JsonParseException.class, () -> index("[{\"id\": \"1\"}, {\"id\": \"2\"}, {\"id\": "));
+
+        // The courses before the error were handed to the ingester, which flushes them on close
+        assertEquals(List.of("1", "2"), sentIds);
+    }
+
+    @Test
+    void testCourseOfTheWrongShapeStopsTheStream() {
+        assertThrows(InvalidFormatException.class,
+                () -> index("[{\"id\": \"1\"}, {\"id\": \"2\", \"minAge\": \"seven\"}, {\"id\": \"3\"}]"));
+
+        assertEquals(List.of("1"), sentIds);
+    }
+
+    private BulkIndexer.BulkIndexingResult index(String json) throws IOException {
+        return bulkIndexer.index(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), "courses_v2",
+                courses -> courses.forEach(course -> acknowledgedIds.add(course.getId())));
+    }
+
+    private static String courses(String... ids) {
+        return Arrays.stream(ids)
+                .map(id -> "{\"id\": \"" + id + "\", \"title\": \"Course " + id + "\"}")
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+}
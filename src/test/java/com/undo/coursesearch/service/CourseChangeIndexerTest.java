@@ -0,0 +1,202 @@
+package com.undo.coursesearch.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.MgetResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import co.elastic.clients.util.BinaryData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.dto.CourseChangeDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CourseChangeIndexerTest {
+
+    private ElasticsearchTransport transport;
+    private CourseChangeIndexer courseChangeIndexer;
+    private final List<MultiGetResponseItem<CourseDocument>> indexedCourses = new ArrayList<>();
+    private final List<BulkOperation> bulkOperations = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        // A real client over a mocked transport, as the BulkIngester builds its own async client from it
+        transport = mock(ElasticsearchTransport.class);
+        when(transport.jsonpMapper()).thenReturn(new JacksonJsonpMapper());
+        when(transport.performRequest(any(), any(), any()))
+                .thenAnswer(invocation -> MgetResponse.<CourseDocument>of(m -> m.docs(indexedCourses)));
+        when(transport.performRequestAsync(any(), any(), any())).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            bulkOperations.addAll(request.operations());
+            List<BulkResponseItem> items = request.operations().stream()
+                    .map(op -> BulkResponseItem.of(i -> i
+                            .operationType(op.isDelete() ? OperationType.Delete : OperationType.Index)
+                            .index("courses")
+                            .id(op.isDelete() ? op.delete().id() : op.index().id())
+                            .status(op.isDelete() ? 200 : 201)))
+                    .toList();
+            return CompletableFuture.completedFuture(BulkResponse.of(r -> r.errors(false).took(1).items(items)));
+        });
+
+        courseChangeIndexer = new CourseChangeIndexer(new ElasticsearchClient(transport), new ObjectMapper());
+        ReflectionTestUtils.setField(courseChangeIndexer, "maxBatchSize", 4);
+        ReflectionTestUtils.setField(courseChangeIndexer, "maxActions", 1000);
+        ReflectionTestUtils.setField(courseChangeIndexer, "maxSize", DataSize.ofMegabytes(5));
+        ReflectionTestUtils.setField(courseChangeIndexer, "concurrency", 1);
+    }
+
+    @Test
+    void testInvalidChangesAreRejectedBeforeAnyRequest() {
+        assertRejected(List.of());
+        assertRejected(List.of(delete("1", 1), delete("2", 1), delete("3", 1), delete("4", 1), delete("5", 1)));
+        assertRejected(List.of(CourseChangeDto.builder().op(CourseChangeDto.Operation.DELETE).id("1").build()));
+        assertRejected(List.of(CourseChangeDto.builder().op(CourseChangeDto.Operation.UPSERT).id("1").version(1L).build()));
+        assertRejected(List.of(CourseChangeDto.builder().op(CourseChangeDto.Operation.UPDATE).id("1").version(1L)
+                .fields(Map.of("id", "2")).build()));
+        assertRejected(List.of(CourseChangeDto.builder().op(CourseChangeDto.Operation.UPDATE).id("1").version(1L)
+                .fields(Map.of("suggest", "x")).build()));
+
+        verifyNoInteractions(transport);
+    }
+
+    @Test
+    void testOperationNamesAreCaseInsensitive() {
+        assertEquals(CourseChangeDto.Operation.UPDATE, CourseChangeDto.Operation.fromString("Update"));
+        assertThrows(IllegalArgumentException.class, () -> CourseChangeDto.Operation.fromString("patch"));
+    }
+
+    @Test
+    void testStaleVersionsAreDropped() throws Exception {
+        indexed(CourseDocument.builder().id("1").title("Algebra").price(10.0).build(), 5);
+
+        CourseChangeIndexer.CourseChangeResult result = apply(
+                update("1", 3, Map.of("price", 20)),
+                upsert("2", 2, CourseDocument.builder().title("Geometry").build()),
+                upsert("2", 2, CourseDocument.builder().title("Geometry II").build()),
+                upsert("2", 1, CourseDocument.builder().title("Geometry I").build()));
+
+        assertEquals(4, result.submitted());
+        assertEquals(1, result.applied());
+        assertEquals(3, result.stale());
+        assertEquals(0, result.failed());
+        assertEquals(List.of("2"), bulkOperations.stream().map(op -> op.index().id()).toList());
+        assertEquals("Geometry", indexedDocument(0).getTitle());
+    }
+
+    @Test
+    void testUpdateAfterUpsertInOneBatchAppliesBoth() throws Exception {
+        CourseChangeIndexer.CourseChangeResult result = apply(
+                upsert("1", 1, CourseDocument.builder().title("Robotics Club").price(100.0).build()),
+                update("1", 2, Map.of("price", 120)));
+
+        assertEquals(2, result.applied());
+        assertEquals(0, result.stale());
+        assertEquals(0, result.failed());
+        assertEquals(1, bulkOperations.size());
+        CourseDocument course = indexedDocument(0);
+        assertEquals(2L, bulkOperations.get(0).index().version());
+        assertEquals("1", course.getId());
+        assertEquals("Robotics Club", course.getTitle());
+        assertEquals(120.0, course.getPrice());
+        assertEquals("Robotics Club", course.getSuggest().getOutput());
+    }
+
+    @Test
+    void testPartialUpdatesAreMergedAndRecomputeSuggestionsOnTitleChange() throws Exception {
+        CourseDocument.CompletionSuggest custom = CourseDocument.CompletionSuggest.builder()
+                .input(List.of("algebra")).output("Algebra").weight(50).build();
+        indexed(CourseDocument.builder().id("1").title("Algebra").price(10.0)
+                .titleSuggest("Algebra").suggest(custom).build(), 1);
+
+        CourseChangeIndexer.CourseChangeResult result = apply(
+                update("1", 2, Map.of("title", "Linear Algebra")),
+                update("1", 3, Map.of("price", 20)));
+
+        assertEquals(2, result.applied());
+        CourseDocument course = indexedDocument(0);
+        assertEquals(3L, bulkOperations.get(0).index().version());
+        assertEquals("Linear Algebra", course.getTitle());
+        assertEquals(20.0, course.getPrice());
+        assertEquals("Linear Algebra", course.getTitleSuggest());
+        assertEquals(List.of("linear", "algebra"), course.getSuggest().getInput());
+    }
+
+    @Test
+    void testSuggestionsAreKeptWhenTitleIsUnchanged() throws Exception {
+        CourseDocument.CompletionSuggest custom = CourseDocument.CompletionSuggest.builder()
+                .input(List.of("algebra")).output("Algebra").weight(50).build();
+        indexed(CourseDocument.builder().id("1").title("Algebra").price(10.0)
+                .titleSuggest("Algebra").suggest(custom).build(), 1);
+
+        apply(update("1", 2, Map.of("price", 20)));
+
+        CourseDocument course = indexedDocument(0);
+        assertEquals(20.0, course.getPrice());
+        assertEquals(custom, course.getSuggest());
+    }
+
+    @Test
+    void testUpdateAfterDeleteInOneBatchFails() throws Exception {
+        indexed(CourseDocument.builder().id("1").title("Algebra").build(), 1);
+
+        CourseChangeIndexer.CourseChangeResult result = apply(
+                delete("1", 2),
+                update("1", 3, Map.of("price", 20)));
+
+        assertEquals(1, result.applied());
+        assertEquals(1, result.failed());
+        assertEquals(2L, bulkOperations.get(0).delete().version());
+    }
+
+    private void assertRejected(List<CourseChangeDto> changes) {
+        assertThrows(IllegalArgumentException.class,
+                () -> courseChangeIndexer.apply(changes, "courses", courses -> {}, ids -> {}));
+    }
+
+    private CourseChangeIndexer.CourseChangeResult apply(CourseChangeDto... changes) throws Exception {
+        return courseChangeIndexer.apply(List.of(changes), "courses", courses -> {}, ids -> {});
+    }
+
+    // The ingester hands the bulk request serialized documents
+    private CourseDocument indexedDocument(int operation) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((BinaryData) bulkOperations.get(operation).index().document()).writeTo(out);
+        return new ObjectMapper().readValue(out.toByteArray(), CourseDocument.class);
+    }
+
+    private void indexed(CourseDocument course, long version) {
+        indexedCourses.add(MultiGetResponseItem.of(i -> i.result(r -> r
+                .index("courses").id(course.getId()).found(true).version(version).source(course))));
+    }
+
+    private static CourseChangeDto upsert(String id, long version, CourseDocument course) {
+        return CourseChangeDto.builder().op(CourseChangeDto.Operation.UPSERT).id(id).version(version).course(course).build();
+    }
+
+    private static CourseChangeDto update(String id, long version, Map<String, Object> fields) {
+        return CourseChangeDto.builder().op(CourseChangeDto.Operation.UPDATE).id(id).version(version).fields(fields).build();
+    }
+
+    private static CourseChangeDto delete(String id, long version) {
+        return CourseChangeDto.builder().op(CourseChangeDto.Operation.DELETE).id(id).version(version).build();
+    }
+}
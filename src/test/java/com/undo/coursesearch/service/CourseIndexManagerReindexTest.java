@@ -0,0 +1,99 @@
+package com.undo.coursesearch.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.elasticsearch.ElasticsearchContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the painless script of {@link CourseIndexManager#copy} on a real cluster, as
+ * it cannot be evaluated in-process. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class CourseIndexManagerReindexTest {
+
+    // 2025-09-03T13:54:46Z
+    private static final long MILLIS = 1_756_907_686_000L;
+
+    @Container
+    private static final ElasticsearchContainer ELASTICSEARCH = new ElasticsearchContainer(
+            DockerImageName.parse("docker.elastic.co/elasticsearch/elasticsearch:8.11.0"))
+            .withEnv("xpack.security.enabled", "false");
+
+    private static RestClient restClient;
+    private static ElasticsearchClient elasticsearchClient;
+    private static CourseIndexManager courseIndexManager;
+
+    @BeforeAll
+    static void setUp() {
+        restClient = RestClient.builder(HttpHost.create(ELASTICSEARCH.getHttpHostAddress())).build();
+        elasticsearchClient = new ElasticsearchClient(new RestClientTransport(restClient, new JacksonJsonpMapper()));
+
+        courseIndexManager = new CourseIndexManager(elasticsearchClient, new ElasticsearchTemplate(elasticsearchClient));
+        ReflectionTestUtils.setField(courseIndexManager, "alias", "courses");
+        ReflectionTestUtils.setField(courseIndexManager, "shards", 1);
+        ReflectionTestUtils.setField(courseIndexManager, "replicas", 0);
+        ReflectionTestUtils.setField(courseIndexManager, "refreshInterval", "1s");
+        ReflectionTestUtils.setField(courseIndexManager, "maintenanceTimeout", Duration.ofMinutes(1));
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        if (restClient != null) {
+            restClient.close();
+        }
+    }
+
+    @Test
+    void testLegacyDocumentsAreCompactedOnCopy() throws Exception {
+        // A concrete index named like the alias, written before the compact mapping
+        index("local", Map.of("id", "local", "nextSessionDate", "2025-09-03T13:54:46",
+                "minAge", 7.6, "maxAge", 12.2, "price", 19.999));
+        index("zoned", Map.of("id", "zoned", "nextSessionDate", "2025-09-03T15:54:46+02:00",
+                "minAge", 8, "maxAge", 12, "price", 25.5));
+        index("compact", Map.of("id", "compact", "nextSessionDate", MILLIS,
+                "minAge", 8, "maxAge", 12, "price", 25.5));
+
+        String target = courseIndexManager.createGeneration();
+        assertEquals(3, courseIndexManager.copy("courses", target));
+        elasticsearchClient.indices().refresh(r -> r.index(target));
+
+        Map<String, Object> local = source(target, "local");
+        assertEquals(MILLIS, ((Number) local.get("nextSessionDate")).longValue());
+        assertEquals(8, local.get("minAge"));
+        assertEquals(12, local.get("maxAge"));
+        assertEquals(20.0, ((Number) local.get("price")).doubleValue());
+
+        assertEquals(MILLIS, ((Number) source(target, "zoned").get("nextSessionDate")).longValue());
+
+        Map<String, Object> compact = source(target, "compact");
+        assertEquals(MILLIS, ((Number) compact.get("nextSessionDate")).longValue());
+        assertEquals(8, compact.get("minAge"));
+        assertEquals(25.5, ((Number) compact.get("price")).doubleValue());
+    }
+
+    private static void index(String id, Map<String, Object> document) throws Exception {
+        elasticsearchClient.index(i -> i.index("courses").id(id).document(document).refresh(Refresh.True));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> source(String index, String id) throws Exception {
+        return elasticsearchClient.get(g -> g.index(index).id(id), Map.class).source();
+    }
+}
@@ -0,0 +1,75 @@
+package com.undo.coursesearch.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.mapping.Property;
+import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
+import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
+import co.elastic.clients.elasticsearch.indices.GetIndexResponse;
+import co.elastic.clients.elasticsearch.indices.PutIndexTemplateRequest;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CourseIndexManagerTest {
+
+    private ElasticsearchIndicesClient indices;
+    private CourseIndexManager courseIndexManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        ElasticsearchClient elasticsearchClient = mock(ElasticsearchClient.class);
+        indices = mock(ElasticsearchIndicesClient.class);
+        when(elasticsearchClient.indices()).thenReturn(indices);
+        when(indices.putIndexTemplate(any(Function.class))).thenCallRealMethod();
+        when(indices.create(any(Function.class))).thenCallRealMethod();
+        when(indices.get(any(Function.class))).thenReturn(GetIndexResponse.of(g -> g.result(Map.of())));
+
+        // Only builds the mapping from the CourseDocument annotations, which needs no cluster
+        ElasticsearchTransport transport = mock(ElasticsearchTransport.class);
+        when(transport.jsonpMapper()).thenReturn(new JacksonJsonpMapper());
+        ElasticsearchTemplate operations = new ElasticsearchTemplate(new ElasticsearchClient(transport));
+
+        courseIndexManager = new CourseIndexManager(elasticsearchClient, operations);
+        ReflectionTestUtils.setField(courseIndexManager, "alias", "courses");
+        ReflectionTestUtils.setField(courseIndexManager, "shards", 1);
+        ReflectionTestUtils.setField(courseIndexManager, "replicas", 1);
+        ReflectionTestUtils.setField(courseIndexManager, "refreshInterval", "1s");
+    }
+
+    @Test
+    void testGenerationIsCreatedWithTheCourseMappingWithoutAnInstalledTemplate() throws Exception {
+        assertEquals("courses_v1", courseIndexManager.createGeneration());
+
+        InOrder order = inOrder(indices);
+        ArgumentCaptor<PutIndexTemplateRequest> template = ArgumentCaptor.forClass(PutIndexTemplateRequest.class);
+        order.verify(indices).putIndexTemplate(template.capture());
+        ArgumentCaptor<CreateIndexRequest> create = ArgumentCaptor.forClass(CreateIndexRequest.class);
+        order.verify(indices).create(create.capture());
+
+        assertEquals(List.of("courses_v*"), template.getValue().indexPatterns());
+        Map<String, Property> properties = template.getValue().template().mappings().properties();
+        assertTrue(properties.get("category").isKeyword());
+        assertTrue(properties.get("type").isKeyword());
+        assertTrue(properties.get("price").isScaledFloat());
+        assertTrue(properties.get("nextSessionDate").isDate());
+        assertTrue(properties.get("titleSuggest").isSearchAsYouType());
+        assertEquals(List.of("nextSessionDate", "id"), template.getValue().template().settings().sort().field());
+
+        assertEquals("courses_v1", create.getValue().index());
+        assertEquals("0", create.getValue().settings().numberOfReplicas());
+    }
+}
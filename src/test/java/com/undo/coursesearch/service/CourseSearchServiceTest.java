@@ -1,25 +1,59 @@
 package com.undo.coursesearch.service;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
 import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch._types.query_dsl.RangeQuery;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
 import co.elastic.clients.json.JsonData;
+import com.undo.coursesearch.cache.SearchResultCache;
+import com.undo.coursesearch.document.CourseDocument;
+import com.undo.coursesearch.engine.InMemorySearchEngine;
 import com.undo.coursesearch.dto.SearchRequestDto;
+import com.undo.coursesearch.dto.SearchResponseDto;
+import com.undo.coursesearch.limit.AdaptiveLimiter;
+import com.undo.coursesearch.limit.ElasticsearchBulkheads;
+import com.undo.coursesearch.limit.OverloadedException;
+import com.undo.coursesearch.metrics.SearchMetrics;
 import com.undo.coursesearch.repository.CourseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.ArgumentCaptor;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class CourseSearchServiceTest {
@@ -63,4 +97,350 @@ class CourseSearchServiceTest {
         assertTrue(query.toString().contains("10.00"));
         assertTrue(query.toString().contains("100.00"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFacetSearchMovesFacetFiltersToPostFilter() throws Exception {
+        SearchRequestDto request = new SearchRequestDto();
+        request.setCategory("Science");
+        request.setMinPrice(new BigDecimal("10.00"));
+        request.setFacets(true);
+        ReflectionTestUtils.setField(courseSearchService, "facetSize", 20);
+        ReflectionTestUtils.setField(courseSearchService, "priceFacetInterval", 50.0);
+        ReflectionTestUtils.setField(courseSearchService, "ageFacetInterval", 2.0);
+
+        Method buildSearchRequestMethod = CourseSearchService.class.getDeclaredMethod("buildSearchRequest", SearchRequestDto.class);
+        buildSearchRequestMethod.setAccessible(true);
+
+        SearchRequest searchRequest = (SearchRequest) buildSearchRequestMethod.invoke(courseSearchService, request);
+
+        System.out.println("[DEBUG_LOG] Search request: " + searchRequest);
+
+        // The category filter narrows hits but not the category facet itself
+        assertFalse(searchRequest.query().toString().contains("Science"));
+        assertTrue(searchRequest.postFilter().toString().contains("Science"));
+        assertEquals(List.of("category", "type", "price", "age"), List.copyOf(searchRequest.aggregations().keySet()));
+        assertTrue(searchRequest.aggregations().get("category").filter().isMatchAll());
+        assertTrue(searchRequest.aggregations().get("type").filter().toString().contains("Science"));
+    }
+
+    @Test
+    void testSummaryViewFetchesOnlyListFields() {
+        SearchRequestDto request = new SearchRequestDto();
+        request.setView(SearchRequestDto.View.SUMMARY);
+
+        SearchRequest searchRequest = courseSearchService.buildSearchRequest(request);
+
+        System.out.println("[DEBUG_LOG] Search request: " + searchRequest);
+
+        assertEquals(SearchRequestDto.SUMMARY_FIELDS, searchRequest.source().filter().includes());
+        assertEquals(List.of("suggest", "titleSuggest"), searchRequest.source().filter().excludes());
+
+        request.setFields(List.of("id", "suggest"));
+        assertThrows(IllegalArgumentException.class, () -> courseSearchService.searchCourses(request));
+    }
+
+    @Test
+    void testEquivalentFilterOnlySearchesHaveIdenticalQueries() {
+        ReflectionTestUtils.setField(courseSearchService, "dateGranularity", Duration.ofMinutes(1));
+
+        SearchRequestDto first = new SearchRequestDto();
+        first.setType(CourseDocument.CourseType.COURSE);
+        first.setCategory("Science");
+        first.setMinAge(new BigDecimal("8"));
+        first.setMaxPrice(new BigDecimal("100"));
+        first.setStartDate(LocalDateTime.of(2025, 9, 1, 10, 15, 7));
+
+        SearchRequestDto second = new SearchRequestDto();
+        second.setCategory("Science");
+        second.setMinAge(new BigDecimal("8.0"));
+        second.setMaxPrice(new BigDecimal("100.000"));
+        second.setStartDate(LocalDateTime.of(2025, 9, 1, 10, 15, 59));
+        second.setType(CourseDocument.CourseType.COURSE);
+
+        SearchRequest searchRequest = courseSearchService.buildSearchRequest(first);
+
+        System.out.println("[DEBUG_LOG] Search request: " + searchRequest);
+
+        assertEquals(searchRequest.toString(), courseSearchService.buildSearchRequest(second).toString());
+        assertTrue(searchRequest.query().isConstantScore());
+        // 2025-09-01T10:15:00Z in epoch milliseconds
+        assertTrue(searchRequest.query().toString().contains("1756721700000"));
+        assertEquals(Boolean.TRUE, searchRequest.requestCache());
+
+        // Text searches keep scoring, and their one-off hit lists stay out of the shard request cache
+        first.setQ("physics");
+        assertTrue(courseSearchService.buildSearchRequest(first).query().isBool());
+        assertNull(courseSearchService.buildSearchRequest(first).requestCache());
+    }
+
+    @Test
+    void testLaterPagesWithKnownTotalSkipCounting() {
+        ReflectionTestUtils.setField(courseSearchService, "trackTotalHitsUpTo", 10000);
+
+        SearchRequestDto request = new SearchRequestDto();
+        request.setQ("physics");
+        request.setKnownTotal(12000L);
+
+        // The first page always counts, up to the cap
+        assertEquals(10000, courseSearchService.buildSearchRequest(request).trackTotalHits().count());
+
+        request.setPage(3);
+        assertFalse(courseSearchService.buildSearchRequest(request).trackTotalHits().enabled());
+        assertEquals("gte", courseSearchService.knownTotalRelation(request.getKnownTotal()));
+
+        request.setKnownTotal(-1L);
+        assertThrows(IllegalArgumentException.class, () -> courseSearchService.searchCourses(request));
+    }
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExportReadsPagesOnDemandAndReleasesThePointInTime() throws Exception {
+        AdaptiveLimiter exportLimiter = new AdaptiveLimiter(1, 1, 1, 1, TimeUnit.SECONDS, 0.9);
+        ElasticsearchBulkheads bulkheads = mock(ElasticsearchBulkheads.class);
+        when(bulkheads.hold(ElasticsearchBulkheads.Bulkhead.EXPORT)).thenReturn(exportLimiter.tryAcquire());
+
+        CourseSearchService exportService = new CourseSearchService(courseRepository, elasticsearchClient, null,
+                null, null, null, null, null, bulkheads, new SearchMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(exportService, "exportPageSize", 2);
+        ReflectionTestUtils.setField(exportService, "exportKeepAlive", "5m");
+
+        when(elasticsearchClient.openPointInTime(any(Function.class)))
+                .thenReturn(OpenPointInTimeResponse.of(o -> o.id("pit-1")));
+        when(elasticsearchClient.search(any(SearchRequest.class), eq(CourseDocument.class)))
+                .thenReturn(page("pit-2", 1, 2), page("pit-3", 3));
+
+        SearchRequestDto request = new SearchRequestDto();
+        request.setCategory("Science");
+        request.setPage(5);
+
+        List<String> ids;
+        try (Stream<SearchResponseDto.CourseDto> courses = exportService.exportCourses(request)) {
+            // Nothing is read before the stream is consumed
+            verify(elasticsearchClient, never()).search(any(SearchRequest.class), eq(CourseDocument.class));
+            ids = courses.map(SearchResponseDto.CourseDto::getId).collect(Collectors.toList());
+        }
+
+        assertEquals(List.of("1", "2", "3"), ids);
+        ArgumentCaptor<SearchRequest> searches = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(elasticsearchClient, times(2)).search(searches.capture(), eq(CourseDocument.class));
+        SearchRequest second = searches.getAllValues().get(1);
+
+        System.out.println("[DEBUG_LOG] Export request: " + second);
+
+        assertEquals("pit-2", second.pit().id());
+        assertEquals(2L, second.searchAfter().get(0).longValue());
+        assertNull(second.from());
+        assertTrue(second.query().toString().contains("Science"));
+        verify(elasticsearchClient).closePointInTime(any(Function.class));
+        assertEquals(0, exportLimiter.inFlight());
+    }
+
+    @Test
+    void testFailedBatchEntryIsReturnedForThatEntryOnly() throws Exception {
+        CourseSearchService batchService = new CourseSearchService(courseRepository, elasticsearchClient, null,
+                null, null, null, null, inMemoryEngine(InMemorySearchEngine.Mode.OFF),
+                bulkheads(), new SearchMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(batchService, "maxBatchSize", 20);
+        ReflectionTestUtils.setField(batchService, "trackTotalHitsUpTo", 10000);
+
+        when(elasticsearchClient.msearch(any(MsearchRequest.class), eq(CourseDocument.class)))
+                .thenReturn(MsearchResponse.<CourseDocument>of(m -> m.took(3).responses(List.of(
+                        batchResult(1, 2),
+                        MultiSearchResponseItem.of(i -> i.failure(f -> f
+                                .status(400)
+                                .error(e -> e.type("search_phase_execution_exception").reason("all shards failed")))),
+                        batchResult(3)))));
+
+        SearchRequestDto science = new SearchRequestDto();
+        science.setCategory("Science");
+        SearchRequestDto broken = new SearchRequestDto();
+        broken.setQ("physics");
+        broken.setPage(2);
+        SearchRequestDto art = new SearchRequestDto();
+        art.setCategory("Art");
+
+        List<SearchResponseDto> results = batchService.searchCoursesBatch(List.of(science, broken, art));
+
+        assertEquals(3, results.size());
+        assertNull(results.get(0).getError());
+        assertEquals(List.of("1", "2"), results.get(0).getCourses().stream().map(SearchResponseDto.CourseDto::getId).toList());
+        assertEquals(2, results.get(0).getTotal());
+
+        assertEquals("all shards failed", results.get(1).getError());
+        assertEquals(2, results.get(1).getPage());
+        assertTrue(results.get(1).getCourses().isEmpty());
+
+        assertNull(results.get(2).getError());
+        assertEquals(List.of("3"), results.get(2).getCourses().stream().map(SearchResponseDto.CourseDto::getId).toList());
+        verify(elasticsearchClient, times(1)).msearch(any(MsearchRequest.class), eq(CourseDocument.class));
+    }
+
+    @Test
+    void testAsyncSearchRunsOnTheAsyncClient() {
+        ElasticsearchAsyncClient asyncClient = mock(ElasticsearchAsyncClient.class);
+        when(asyncClient.search(any(SearchRequest.class), eq(CourseDocument.class)))
+                .thenReturn(CompletableFuture.completedFuture(page(null, 1, 2)));
+        CourseSearchService asyncService = service(asyncClient, inMemoryEngine(InMemorySearchEngine.Mode.OFF), bulkheads());
+
+        SearchRequestDto request = new SearchRequestDto();
+        request.setCategory("Science");
+        SearchResponseDto response = asyncService.searchCoursesAsync(request).join();
+
+        assertEquals(List.of("1", "2"), response.getCourses().stream().map(SearchResponseDto.CourseDto::getId).toList());
+        verifyNoInteractions(elasticsearchClient);
+    }
+
+    @Test
+    void testAsyncSearchFailureIsUnwrapped() {
+        ElasticsearchAsyncClient asyncClient = mock(ElasticsearchAsyncClient.class);
+        when(asyncClient.search(any(SearchRequest.class), eq(CourseDocument.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("Connection reset")));
+        CourseSearchService asyncService = service(asyncClient, inMemoryEngine(InMemorySearchEngine.Mode.OFF), bulkheads());
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> asyncService.searchCoursesAsync(new SearchRequestDto()).join());
+
+        // One CompletionException from join, around the service's own error and the client's cause
+        assertEquals("Failed to search courses", e.getCause().getMessage());
+        assertInstanceOf(IOException.class, e.getCause().getCause());
+    }
+
+    @Test
+    void testAsyncSearchFailureFallsBackToTheInMemoryEngine() {
+        ElasticsearchAsyncClient asyncClient = mock(ElasticsearchAsyncClient.class);
+        when(asyncClient.search(any(SearchRequest.class), eq(CourseDocument.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("Connection reset")));
+        InMemorySearchEngine engine = inMemoryEngine(InMemorySearchEngine.Mode.FALLBACK);
+        engine.index(List.of(CourseDocument.builder().id("7").title("Chemistry").category("Science").build()));
+        engine.markReady();
+        CourseSearchService asyncService = service(asyncClient, engine, bulkheads());
+
+        SearchResponseDto response = asyncService.searchCoursesAsync(new SearchRequestDto()).join();
+
+        assertEquals(List.of("7"), response.getCourses().stream().map(SearchResponseDto.CourseDto::getId).toList());
+    }
+
+    @Test
+    void testAsyncSearchRejectedByTheBulkheadFailsWithOverloadedException() {
+        ElasticsearchAsyncClient asyncClient = mock(ElasticsearchAsyncClient.class);
+        ElasticsearchBulkheads bulkheads = bulkheads(1);
+        AdaptiveLimiter.Permit permit = bulkheads.hold(ElasticsearchBulkheads.Bulkhead.SEARCH);
+        CourseSearchService asyncService = service(asyncClient, inMemoryEngine(InMemorySearchEngine.Mode.OFF), bulkheads);
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> asyncService.searchCoursesAsync(new SearchRequestDto()).join());
+
+        assertInstanceOf(OverloadedException.class, e.getCause());
+        verifyNoInteractions(asyncClient);
+        permit.ignore();
+    }
+
+    @Test
+    void testOverloadedSearchIsNotAnsweredByTheFallback() {
+        ElasticsearchAsyncClient asyncClient = mock(ElasticsearchAsyncClient.class);
+        InMemorySearchEngine engine = inMemoryEngine(InMemorySearchEngine.Mode.FALLBACK);
+        engine.index(List.of(CourseDocument.builder().id("7").title("Chemistry").category("Science").build()));
+        engine.markReady();
+        ElasticsearchBulkheads bulkheads = bulkheads(1);
+        AdaptiveLimiter.Permit permit = bulkheads.hold(ElasticsearchBulkheads.Bulkhead.SEARCH);
+        CourseSearchService overloadedService = service(asyncClient, engine, bulkheads);
+
+        assertThrows(OverloadedException.class, () -> overloadedService.searchCourses(new SearchRequestDto()));
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> overloadedService.searchCoursesAsync(new SearchRequestDto()).join());
+        assertInstanceOf(OverloadedException.class, e.getCause());
+
+        verifyNoInteractions(elasticsearchClient, asyncClient);
+        permit.ignore();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFirstCursorPageCountsUpToTheCapAndReportsTheRelation() throws Exception {
+        CourseSearchService cursorService = service(null, inMemoryEngine(InMemorySearchEngine.Mode.OFF), bulkheads());
+        ReflectionTestUtils.setField(cursorService, "cursorKeepAlive", "1m");
+        when(elasticsearchClient.openPointInTime(any(Function.class)))
+                .thenReturn(OpenPointInTimeResponse.of(o -> o.id("pit-1")));
+        SearchResponse<CourseDocument> first = page("pit-2", 1, 2);
+        when(elasticsearchClient.search(any(SearchRequest.class), eq(CourseDocument.class)))
+                .thenReturn(SearchResponse.of(r -> r
+                        .took(1)
+                        .timedOut(false)
+                        .shards(first.shards())
+                        .hits(h -> h.total(t -> t.value(10000).relation(TotalHitsRelation.Gte)).hits(first.hits().hits()))
+                        .pitId("pit-2")), page("pit-3", 3, 4));
+
+        SearchRequestDto request = new SearchRequestDto();
+        request.setSize(2);
+        request.setCursor("*");
+        SearchResponseDto firstPage = cursorService.searchCourses(request);
+
+        assertEquals(10000, firstPage.getTotal());
+        assertEquals(SearchResponseDto.TOTAL_LOWER_BOUND, firstPage.getTotalRelation());
+        assertNotNull(firstPage.getNextCursor());
+
+        request.setCursor(firstPage.getNextCursor());
+        SearchResponseDto secondPage = cursorService.searchCourses(request);
+
+        // The total travels in the cursor, and so does its relation to the cap
+        assertEquals(10000, secondPage.getTotal());
+        assertEquals(SearchResponseDto.TOTAL_LOWER_BOUND, secondPage.getTotalRelation());
+        assertEquals(1, secondPage.getPage());
+
+        ArgumentCaptor<SearchRequest> searches = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(elasticsearchClient, times(2)).search(searches.capture(), eq(CourseDocument.class));
+        assertEquals(10000, searches.getAllValues().get(0).trackTotalHits().count());
+        assertFalse(searches.getAllValues().get(1).trackTotalHits().enabled());
+        assertEquals("pit-2", searches.getAllValues().get(1).pit().id());
+    }
+
+    private CourseSearchService service(ElasticsearchAsyncClient asyncClient, InMemorySearchEngine engine,
+                                        ElasticsearchBulkheads bulkheads) {
+        SearchResultCache cache = new SearchResultCache(new IndexGeneration(event -> {}), false, 100,
+                Duration.ofMinutes(1), Duration.ofMinutes(1));
+        CourseSearchService asyncService = new CourseSearchService(courseRepository, elasticsearchClient, asyncClient,
+                new SearchExecutor(SearchExecutor.Mode.ASYNC), cache, cache, null, engine, bulkheads,
+                new SearchMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(asyncService, "trackTotalHitsUpTo", 10000);
+        return asyncService;
+    }
+
+    private static InMemorySearchEngine inMemoryEngine(InMemorySearchEngine.Mode mode) {
+        return new InMemorySearchEngine(mode, Duration.ofMinutes(1));
+    }
+
+    private static ElasticsearchBulkheads bulkheads() {
+        return bulkheads(20);
+    }
+
+    private static ElasticsearchBulkheads bulkheads(int searchLimit) {
+        return new ElasticsearchBulkheads(new SimpleMeterRegistry(), Duration.ofMillis(500), 0.9, Duration.ofSeconds(1),
+                searchLimit, searchLimit, searchLimit, 10, 2, 100, 2, 2, 2, 4, 4, 4);
+    }
+
+    private static MultiSearchResponseItem<CourseDocument> batchResult(long... ids) {
+        List<Hit<CourseDocument>> hits = new ArrayList<>();
+        for (long id : ids) {
+            CourseDocument course = CourseDocument.builder().id(String.valueOf(id)).title("Course " + id).build();
+            hits.add(Hit.of(h -> h.index("courses_v1").id(course.getId()).source(course)));
+        }
+        return MultiSearchResponseItem.of(i -> i.result(r -> r
+                .took(1)
+                .timedOut(false)
+                .shards(s -> s.total(1).successful(1).failed(0))
+                .hits(h -> h.total(t -> t.value(ids.length).relation(TotalHitsRelation.Eq)).hits(hits))));
+    }
+
+    private static SearchResponse<CourseDocument> page(String pitId, long... ids) {
+        List<Hit<CourseDocument>> hits = new ArrayList<>();
+        for (long id : ids) {
+            CourseDocument course = CourseDocument.builder().id(String.valueOf(id)).title("Course " + id).build();
+            hits.add(Hit.of(h -> h.index("courses_v1").id(course.getId()).source(course).sort(FieldValue.of(id))));
+        }
+        return SearchResponse.of(r -> r
+                .took(1)
+                .timedOut(false)
+                .shards(s -> s.total(1).successful(1).failed(0))
+                .hits(h -> h.hits(hits))
+                .pitId(pitId));
+    }
+}
@@ -0,0 +1,86 @@
+package com.undo.coursesearch.service;
+
+import com.undo.coursesearch.limit.AdaptiveLimiter;
+import com.undo.coursesearch.limit.ElasticsearchBulkheads;
+import com.undo.coursesearch.repository.CourseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DataIndexingServiceTest {
+
+    private BulkIndexer bulkIndexer;
+    private CourseIndexManager courseIndexManager;
+    private IndexGeneration indexGeneration;
+    private DataIndexingService dataIndexingService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bulkIndexer = mock(BulkIndexer.class);
+        courseIndexManager = mock(CourseIndexManager.class);
+        indexGeneration = new IndexGeneration(event -> {});
+        AdaptiveLimiter adminLimiter = new AdaptiveLimiter(1, 1, 1, 1, TimeUnit.SECONDS, 0.9);
+        ElasticsearchBulkheads bulkheads = mock(ElasticsearchBulkheads.class);
+        when(bulkheads.hold(ElasticsearchBulkheads.Bulkhead.ADMIN)).thenAnswer(invocation -> adminLimiter.tryAcquire());
+
+        dataIndexingService = new DataIndexingService(mock(CourseRepository.class), bulkIndexer,
+                mock(CourseChangeIndexer.class), courseIndexManager, indexGeneration, bulkheads, List.of());
+        ReflectionTestUtils.setField(dataIndexingService, "sampleFile",
+                new ByteArrayResource("[]".getBytes(StandardCharsets.UTF_8)));
+
+        when(courseIndexManager.currentIndex()).thenReturn(Optional.of("courses_v1"));
+        when(courseIndexManager.createGeneration()).thenReturn("courses_v2");
+    }
+
+    @Test
+    void testFailedLoadKeepsTheLiveGeneration() throws Exception {
+        when(bulkIndexer.index(any(), eq("courses_v2"), any())).thenReturn(new BulkIndexer.BulkIndexingResult(
+                3, 2, 1, List.of(new BulkIndexer.ItemFailure("7", "mapper_parsing_exception: bad price"))));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> dataIndexingService.reindexData(false));
+
+        assertTrue(e.getCause().getMessage().contains("1 of 3 courses failed"));
+        assertAbandoned();
+    }
+
+    @Test
+    void testEmptyLoadKeepsTheLiveGeneration() throws Exception {
+        when(bulkIndexer.index(any(), eq("courses_v2"), any()))
+                .thenReturn(new BulkIndexer.BulkIndexingResult(0, 0, 0, List.of()));
+
+        assertThrows(RuntimeException.class, () -> dataIndexingService.reindexData(false));
+
+        assertAbandoned();
+    }
+
+    @Test
+    void testSuccessfulLoadIsSwappedIn() throws Exception {
+        when(bulkIndexer.index(any(), eq("courses_v2"), any()))
+                .thenReturn(new BulkIndexer.BulkIndexingResult(3, 3, 0, List.of()));
+
+        dataIndexingService.reindexData(false);
+
+        verify(courseIndexManager).swapAlias("courses_v2");
+        verify(courseIndexManager).deleteOldGenerations();
+        assertEquals(1, indexGeneration.current());
+    }
+
+    private void assertAbandoned() throws Exception {
+        verify(courseIndexManager).deleteGeneration("courses_v2");
+        verify(courseIndexManager, never()).finalizeGeneration(any());
+        verify(courseIndexManager, never()).swapAlias(any());
+        verify(courseIndexManager, never()).deleteOldGenerations();
+        assertEquals(0, indexGeneration.current());
+    }
+}
@@ -0,0 +1,76 @@
+package com.undo.coursesearch.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undo.coursesearch.dto.SearchRequestDto;
+import com.undo.coursesearch.metrics.SearchMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.entity.StringEntity;
+import org.elasticsearch.client.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RawSearchServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RawSearchService rawSearchService = new RawSearchService(
+            null, null, null, objectMapper, null, new SearchMetrics(new SimpleMeterRegistry()));
+
+    @Test
+    void testSourcesAreCopiedIntoResponseShape() throws Exception {
+        String body = """
+                {"took": 3, "hits": {"total": {"value": 12, "relation": "eq"}, "hits": [
+                  {"_source": {"id": "1", "title": "Intro to Physics", "price": 445.93, "nextSessionDate": 1756721700000}},
+                  {"_source": {"id": "2", "title": "Robotics Club", "price": 120, "nextSessionDate": "2025-09-02T08:00:00"}}
+                ]}}
+                """;
+
+        SearchRequestDto request = new SearchRequestDto();
+        request.setSize(5);
+
+        String output = write(request, body);
+
+        assertEquals(objectMapper.readTree("""
+                {"total": 12, "totalRelation": "eq", "page": 0, "size": 5, "totalPages": 3, "courses": [
+                  {"id": "1", "title": "Intro to Physics", "price": 445.93, "nextSessionDate": "2025-09-01T10:15:00"},
+                  {"id": "2", "title": "Robotics Club", "price": 120, "nextSessionDate": "2025-09-02T08:00:00"}
+                ]}
+                """), objectMapper.readTree(output));
+    }
+
+    @Test
+    void testEmptyResultStillHasCourses() throws Exception {
+        // filter_path omits hits.hits when nothing matched
+        String output = write(new SearchRequestDto(), """
+                {"took": 1, "hits": {"total": {"value": 0, "relation": "eq"}}}
+                """);
+
+        assertEquals(objectMapper.readTree("""
+                {"total": 0, "totalRelation": "eq", "page": 0, "size": 10, "totalPages": 0, "courses": []}
+                """), objectMapper.readTree(output));
+    }
+
+    @Test
+    void testCappedTotalIsReportedAsLowerBound() throws Exception {
+        String output = write(new SearchRequestDto(), """
+                {"took": 1, "hits": {"total": {"value": 10000, "relation": "gte"}}}
+                """);
+
+        assertEquals("gte", objectMapper.readTree(output).get("totalRelation").asText());
+        assertEquals(1000, objectMapper.readTree(output).get("totalPages").asInt());
+    }
+
+    private String write(SearchRequestDto request, String elasticsearchBody) throws Exception {
+        Response response = mock(Response.class);
+        when(response.getEntity()).thenReturn(new StringEntity(elasticsearchBody, StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        rawSearchService.write(request, response, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,34 @@
+package com.undo.coursesearch.service;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCursorTest {
+
+    @Test
+    void testRoundTripPreservesSortValueKinds() {
+        SearchCursor cursor = SearchCursor.of("pit-id",
+                List.of(FieldValue.of(445.93), FieldValue.of(1756907686000L), FieldValue.of("42"), FieldValue.NULL),
+                120, 3);
+
+        SearchCursor decoded = SearchCursor.decode(cursor.encode());
+        List<FieldValue> searchAfter = decoded.searchAfter();
+
+        assertEquals("pit-id", decoded.pit());
+        assertEquals(120, decoded.total());
+        assertEquals(3, decoded.page());
+        assertEquals(445.93, searchAfter.get(0).doubleValue());
+        assertEquals(1756907686000L, searchAfter.get(1).longValue());
+        assertEquals("42", searchAfter.get(2).stringValue());
+        assertTrue(searchAfter.get(3).isNull());
+    }
+
+    @Test
+    void testMalformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("not a cursor"));
+    }
+}
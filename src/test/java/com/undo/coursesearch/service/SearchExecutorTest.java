@@ -0,0 +1,57 @@
+package com.undo.coursesearch.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchExecutorTest {
+
+    @Test
+    void testBlockingModeRunsOnTheCaller() {
+        SearchExecutor executor = new SearchExecutor(SearchExecutor.Mode.BLOCKING);
+        Thread caller = Thread.currentThread();
+
+        CompletableFuture<Thread> future = executor.submit(Thread::currentThread);
+
+        assertTrue(future.isDone());
+        assertSame(caller, future.join());
+    }
+
+    @Test
+    void testFailureIsReturnedAsAFailedFuture() {
+        SearchExecutor executor = new SearchExecutor(SearchExecutor.Mode.ASYNC);
+
+        CompletableFuture<Object> future = executor.submit(() -> {
+            throw new IllegalArgumentException("Page size must be positive");
+        });
+
+        assertTrue(future.isCompletedExceptionally());
+        CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void testVirtualThreadsModeRunsOffTheCaller() {
+        SearchExecutor executor = new SearchExecutor(SearchExecutor.Mode.VIRTUAL_THREADS);
+        try {
+            Thread worker = executor.submit(Thread::currentThread).join();
+
+            assertNotSame(Thread.currentThread(), worker);
+            assertTrue(worker.toString().startsWith("VirtualThread"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_20)
+    void testVirtualThreadsNeedJava21() {
+        assertThrows(IllegalStateException.class, () -> new SearchExecutor(SearchExecutor.Mode.VIRTUAL_THREADS));
+    }
+}
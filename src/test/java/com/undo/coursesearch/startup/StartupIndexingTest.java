@@ -0,0 +1,77 @@
+package com.undo.coursesearch.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undo.coursesearch.dto.SearchRequestDto;
+import com.undo.coursesearch.service.CourseIndexManager;
+import com.undo.coursesearch.service.CourseSearchService;
+import com.undo.coursesearch.service.DataIndexingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class StartupIndexingTest {
+
+    @Test
+    void testNotReadyUntilLoadHasSucceededAndWarmupHasRun() throws Exception {
+        CourseIndexManager courseIndexManager = mock(CourseIndexManager.class);
+        DataIndexingService dataIndexingService = mock(DataIndexingService.class);
+        SearchWarmup searchWarmup = mock(SearchWarmup.class);
+        StartupHealthIndicator startupHealth = new StartupHealthIndicator();
+
+        doThrow(new RuntimeException("Connection refused"))
+                .doAnswer(invocation -> {
+                    LongConsumer progress = invocation.getArgument(0);
+                    progress.accept(50);
+                    assertEquals(Status.OUT_OF_SERVICE, startupHealth.health().getStatus());
+                    return null;
+                })
+                .when(dataIndexingService).indexSampleData(any());
+        when(searchWarmup.run()).thenAnswer(invocation -> {
+            assertEquals(StartupHealthIndicator.Phase.WARMING_UP, startupHealth.phase());
+            return 3;
+        });
+
+        StartupIndexing startupIndexing =
+                new StartupIndexing(courseIndexManager, dataIndexingService, searchWarmup, startupHealth);
+        ReflectionTestUtils.setField(startupIndexing, "retryInterval", Duration.ofMillis(1));
+        startupIndexing.run();
+
+        assertEquals(Status.UP, startupHealth.health().getStatus());
+        assertEquals(2, startupHealth.health().getDetails().get("attempts"));
+        assertEquals(50L, startupHealth.health().getDetails().get("indexed"));
+        verify(courseIndexManager, times(2)).putIndexTemplate();
+        verify(searchWarmup).run();
+    }
+
+    @Test
+    void testWarmupReplaysQueriesAndSkipsFailures() {
+        CourseSearchService courseSearchService = mock(CourseSearchService.class);
+        when(courseSearchService.searchCourses(any()))
+                .thenThrow(new IllegalStateException("boom"))
+                .thenReturn(null);
+        StartupHealthIndicator startupHealth = new StartupHealthIndicator();
+
+        SearchWarmup searchWarmup = new SearchWarmup(courseSearchService, new ObjectMapper(), startupHealth);
+        ReflectionTestUtils.setField(searchWarmup, "enabled", true);
+        ReflectionTestUtils.setField(searchWarmup, "timeout", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(searchWarmup, "file", new ByteArrayResource("""
+                {"searches": [{"q": "math"}, {"category": "Science", "sort": "priceAsc"}],
+                 "suggestions": ["ma"]}
+                """.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, searchWarmup.run());
+        assertEquals(2, startupHealth.health().getDetails().get("warmupQueries"));
+        verify(courseSearchService).searchCourses(argThat(request ->
+                "Science".equals(request.getCategory()) && request.getSort() == SearchRequestDto.SortType.PRICE_ASC));
+        verify(courseSearchService).getSuggestions("ma");
+    }
+}
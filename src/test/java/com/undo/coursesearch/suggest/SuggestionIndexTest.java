@@ -0,0 +1,107 @@
+package com.undo.coursesearch.suggest;
+
+import com.undo.coursesearch.document.CourseDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionIndexTest {
+
+    private SuggestionIndex suggestionIndex;
+
+    @BeforeEach
+    void setUp() {
+        suggestionIndex = new SuggestionIndex(true, 3);
+        suggestionIndex.index(List.of(
+                course("1", "Introduction to Physics"),
+                course("2", "Physics in Daily Life"),
+                course("3", "Advanced Physics Lab"),
+                course("4", "Photography Basics"),
+                course("5", "Introduction to Physics")
+        ));
+        suggestionIndex.markReady();
+    }
+
+    @Test
+    void testPrefixMatchesAnyTitleWord() {
+        List<String> suggestions = suggestionIndex.suggest("PHY", 10);
+
+        assertEquals(List.of("Advanced Physics Lab", "Introduction to Physics", "Physics in Daily Life"), suggestions);
+        assertEquals(List.of("Photography Basics"), suggestionIndex.suggest("phot", 10));
+        assertTrue(suggestionIndex.suggest("xyz", 10).isEmpty());
+    }
+
+    @Test
+    void testTopKIsBoundedAndWeighted() {
+        CourseDocument heavy = course("6", "Philosophy for Kids");
+        heavy.getSuggest().setWeight(5);
+        suggestionIndex.index(List.of(heavy));
+
+        List<String> suggestions = suggestionIndex.suggest("ph", 10);
+
+        assertEquals(3, suggestions.size());
+        assertEquals("Philosophy for Kids", suggestions.get(0));
+    }
+
+    @Test
+    void testReindexAndRemoveUpdatePaths() {
+        suggestionIndex.index(List.of(course("4", "Chemistry Basics")));
+        assertTrue(suggestionIndex.suggest("phot", 10).isEmpty());
+        assertEquals(List.of("Chemistry Basics"), suggestionIndex.suggest("bas", 10));
+
+        suggestionIndex.remove(List.of("1", "2", "3"));
+        assertEquals(List.of("Introduction to Physics"), suggestionIndex.suggest("phy", 10));
+    }
+
+    @Test
+    void testUnchangedSuggestionIsKeptAndChangedWeightIsApplied() {
+        CourseDocument repriced = course("4", "Photography Basics");
+        repriced.setPrice(10.0);
+        suggestionIndex.index(List.of(repriced));
+        assertEquals(List.of("Photography Basics"), suggestionIndex.suggest("phot", 10));
+        assertEquals(5, suggestionIndex.size());
+
+        CourseDocument promoted = course("4", "Photography Basics");
+        promoted.getSuggest().setWeight(5);
+        suggestionIndex.index(List.of(promoted));
+        assertEquals("Photography Basics", suggestionIndex.suggest("ph", 10).get(0));
+    }
+
+    @Test
+    void testRemovalPrunesEmptiedNodes() {
+        int baseline = suggestionIndex.nodeCount();
+
+        for (int i = 0; i < 100; i++) {
+            suggestionIndex.index(List.of(course("tmp-" + i, "Robotics Workshop " + i)));
+            suggestionIndex.remove(List.of("tmp-" + i));
+        }
+        suggestionIndex.index(List.of(course("4", "Chemistry Basics")));
+        suggestionIndex.index(List.of(course("4", "Photography Basics")));
+
+        assertEquals(baseline, suggestionIndex.nodeCount());
+        assertTrue(suggestionIndex.suggest("rob", 10).isEmpty());
+        // Shared prefixes stay as long as another input still needs them
+        assertEquals(List.of("Photography Basics"), suggestionIndex.suggest("phot", 10));
+
+        suggestionIndex.remove(List.of("1", "2", "3", "4", "5"));
+        assertEquals(1, suggestionIndex.nodeCount());
+        assertTrue(suggestionIndex.suggest("", 10).isEmpty());
+    }
+
+    @Test
+    void testClearResetsReadiness() {
+        suggestionIndex.clear();
+
+        assertFalse(suggestionIndex.isReady());
+        assertEquals(0, suggestionIndex.size());
+    }
+
+    private static CourseDocument course(String id, String title) {
+        CourseDocument course = CourseDocument.builder().id(id).title(title).build();
+        course.initializeSuggestFields();
+        return course;
+    }
+}